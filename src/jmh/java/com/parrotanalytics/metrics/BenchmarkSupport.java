@@ -0,0 +1,75 @@
+package com.arthur.metrics;
+
+import com.arthur.metrics.config.ArthurMetricsProperties;
+import com.arthur.metrics.config.ArthurMetricsProperties.PublisherConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.SketchConfig;
+import com.arthur.metrics.internal.MetricsServiceImpl;
+import com.arthur.metrics.internal.registry.ArthurCloudWatchMeterRegistry;
+import com.arthur.metrics.internal.registry.MetricDataPublisher;
+import io.micrometer.cloudwatch2.CloudWatchConfig;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Tag;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+/**
+ * Builds the library the way {@link com.arthur.metrics.config.ArthurMetricsConfiguration} does, without Spring and without CloudWatch.
+ */
+public final class BenchmarkSupport {
+
+  public static final String APPLICATION_NAME = "benchmark";
+
+  private BenchmarkSupport() {
+  }
+
+  /**
+   * Registry with the step meters used in production, publishing to the given publisher every step.
+   */
+  public static ArthurCloudWatchMeterRegistry cloudWatchMeterRegistry(MetricDataPublisher publisher, Duration step) {
+    return cloudWatchMeterRegistry(publisher, step, Clock.SYSTEM);
+  }
+
+  public static ArthurCloudWatchMeterRegistry cloudWatchMeterRegistry(MetricDataPublisher publisher, Duration step, Clock clock) {
+    Map<String, String> configuration = Map.of("cloudwatch.namespace", "Benchmark", "cloudwatch.step", step.toString());
+    CloudWatchConfig cloudWatchConfig = configuration::get;
+    return new ArthurCloudWatchMeterRegistry(cloudWatchConfig, clock, publisher, new SketchConfig(), new PublisherConfig());
+  }
+
+  public static MetricsServiceImpl metricsService(ArthurCloudWatchMeterRegistry meterRegistry) {
+    return new MetricsServiceImpl(meterRegistry, APPLICATION_NAME, new ArthurMetricsProperties());
+  }
+
+  /**
+   * Publisher that discards the metric data, so that benchmarks of recording are not disturbed by publishing.
+   */
+  public static MetricDataPublisher discardingPublisher() {
+    return new MetricDataPublisher() {
+      @Override
+      public void beginStep(long timestamp) {
+      }
+
+      @Override
+      public void add(String metricName, String suffix, List<Tag> tags, StandardUnit unit, double value) {
+      }
+
+      @Override
+      public void addStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, double sampleCount, double sum, double minimum, double maximum) {
+      }
+
+      @Override
+      public void addHighResolutionStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, long timestamp, double sampleCount, double sum,
+          double minimum, double maximum) {
+      }
+
+      @Override
+      public void addDistribution(String metricName, List<Tag> tags, StandardUnit unit, double[] values, double[] counts, int length) {
+      }
+
+      @Override
+      public void endStep() {
+      }
+    };
+  }
+}
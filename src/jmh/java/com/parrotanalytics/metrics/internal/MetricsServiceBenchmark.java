@@ -0,0 +1,131 @@
+package com.arthur.metrics.internal;
+
+import com.arthur.metrics.BenchmarkSupport;
+import com.arthur.metrics.internal.registry.ArthurCloudWatchMeterRegistry;
+import com.arthur.metrics.meters.Counter;
+import com.arthur.metrics.meters.MetricsTimer;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recording through the {@link com.arthur.metrics.service.Metrics} API. The <code>_contended</code> variants record to the same meters from as many
+ * threads as there are processors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsServiceBenchmark {
+
+  private static final String METRIC_NAME = "benchmark.requests";
+  private static final Tags TAGS = Tags.of("Http Method", "GET", "Http Status", "200");
+
+  private ArthurCloudWatchMeterRegistry meterRegistry;
+  private MetricsServiceImpl metricsService;
+  private Counter counter;
+  private MetricsTimer timer;
+
+  @Setup
+  public void setUp() {
+    meterRegistry = BenchmarkSupport.cloudWatchMeterRegistry(BenchmarkSupport.discardingPublisher(), Duration.ofMinutes(1));
+    metricsService = BenchmarkSupport.metricsService(meterRegistry);
+    counter = metricsService.createOrGetCounter(METRIC_NAME);
+    timer = metricsService.createOrGetTimer(METRIC_NAME);
+  }
+
+  @TearDown
+  public void tearDown() {
+    meterRegistry.close();
+  }
+
+  @Benchmark
+  public Counter createOrGetCounter_existing() {
+    return metricsService.createOrGetCounter(METRIC_NAME);
+  }
+
+  @Benchmark
+  public MetricsTimer createOrGetTimer_existing() {
+    return metricsService.createOrGetTimer(METRIC_NAME);
+  }
+
+  @Benchmark
+  public void counterIncrement() {
+    counter.increment();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void counterIncrement_contended() {
+    counter.increment();
+  }
+
+  @Benchmark
+  public void timerStartStop() {
+    timer.stopSample(timer.startSample());
+  }
+
+  @Benchmark
+  public void timerStartStopWithTags() {
+    timer.stopSample(timer.startSample(), TAGS);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void timerStartStopWithTags_contended() {
+    timer.stopSample(timer.startSample(), TAGS);
+  }
+
+  /**
+   * Creates a meter per invocation, on a new registry per iteration, as a steady state would only find existing meters.
+   */
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 5, batchSize = NewMeters.BATCH_SIZE)
+  @Measurement(iterations = 10, batchSize = NewMeters.BATCH_SIZE)
+  @State(Scope.Thread)
+  public static class NewMeters {
+
+    static final int BATCH_SIZE = 10_000;
+
+    private ArthurCloudWatchMeterRegistry meterRegistry;
+    private MetricsServiceImpl metricsService;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      meterRegistry = BenchmarkSupport.cloudWatchMeterRegistry(BenchmarkSupport.discardingPublisher(), Duration.ofMinutes(1));
+      metricsService = BenchmarkSupport.metricsService(meterRegistry);
+      next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+      meterRegistry.close();
+    }
+
+    @Benchmark
+    public Counter createOrGetCounter_new() {
+      return metricsService.createOrGetCounter(METRIC_NAME + "." + next++);
+    }
+
+    @Benchmark
+    public MetricsTimer createOrGetTimer_new() {
+      return metricsService.createOrGetTimer(METRIC_NAME + "." + next++);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.arthur.metrics.internal.aop;
+
+import com.arthur.metrics.BenchmarkSupport;
+import com.arthur.metrics.annotations.Count;
+import com.arthur.metrics.annotations.Timer;
+import com.arthur.metrics.internal.MetricsServiceImpl;
+import com.arthur.metrics.internal.registry.ArthurCloudWatchMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+/**
+ * Overhead of the {@link Timer} and {@link Count} advice. <code>proxied</code> calls a method of the same proxy without annotation, so the difference
+ * to <code>direct</code> is the cost of the proxy and the difference to the advised methods is the cost of the aspects.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricAspectBenchmark {
+
+  private ArthurCloudWatchMeterRegistry meterRegistry;
+  private Service target;
+  private Service proxy;
+
+  @Setup
+  public void setUp() {
+    meterRegistry = BenchmarkSupport.cloudWatchMeterRegistry(BenchmarkSupport.discardingPublisher(), Duration.ofMinutes(1));
+    MetricsServiceImpl metricsService = BenchmarkSupport.metricsService(meterRegistry);
+    target = new Service();
+    AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+    proxyFactory.addAspect(new TimerMetricAspect(metricsService));
+    proxyFactory.addAspect(new CountMetricAspect(metricsService));
+    proxy = proxyFactory.getProxy();
+  }
+
+  @TearDown
+  public void tearDown() {
+    meterRegistry.close();
+  }
+
+  @Benchmark
+  public int direct() {
+    return target.unadvised(1);
+  }
+
+  @Benchmark
+  public int proxied() {
+    return proxy.unadvised(1);
+  }
+
+  @Benchmark
+  public int timed() {
+    return proxy.timed(1);
+  }
+
+  @Benchmark
+  public int counted() {
+    return proxy.counted(1);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public int timed_contended() {
+    return proxy.timed(1);
+  }
+
+  public static class Service {
+
+    public int unadvised(int value) {
+      return value + 1;
+    }
+
+    @Timer(name = "benchmark.timed")
+    public int timed(int value) {
+      return value + 1;
+    }
+
+    @Count(name = "benchmark.counted")
+    public int counted(int value) {
+      return value + 1;
+    }
+  }
+}
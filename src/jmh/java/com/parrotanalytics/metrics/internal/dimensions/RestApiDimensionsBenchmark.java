@@ -0,0 +1,49 @@
+package com.arthur.metrics.internal.dimensions;
+
+import io.micrometer.core.instrument.Tags;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RestApiDimensionsBenchmark {
+
+  private RestApiDimensions restApiDimensions;
+
+  @Setup
+  public void setUp() {
+    restApiDimensions = new RestApiDimensions();
+    restApiDimensions.setRequestURI("/api/v1/accounts/{accountId}/titles");
+    restApiDimensions.setHttpMethod("GET");
+    restApiDimensions.setHttpStatus(200);
+    restApiDimensions.setOperationSuccessful(true);
+    restApiDimensions.setUserId("1234");
+    restApiDimensions.setAccountId("56");
+    restApiDimensions.setAccountName("Parrot Test Account");
+    restApiDimensions.setCountryIsoCode("NZ");
+    restApiDimensions.setIpAddress("10.0.0.1");
+  }
+
+  @Benchmark
+  public Tags getTags() {
+    return restApiDimensions.getTags();
+  }
+
+  @Benchmark
+  public Tags getLowCardinalityTags() {
+    return restApiDimensions.getLowCardinalityTags();
+  }
+}
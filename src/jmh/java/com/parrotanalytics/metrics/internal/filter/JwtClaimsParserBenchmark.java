@@ -0,0 +1,56 @@
+package com.arthur.metrics.internal.filter;
+
+import com.arthur.metrics.utils.TestUtils;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link JwtTokenUtility#getClaimsFromJwtToken(String)} (jjwt) compared to the {@link StreamingJwtClaimsParser}, on the test tokens.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtClaimsParserBenchmark {
+
+  @Param({"jwt_all_attributes_present", "jwt_missing_accountName"})
+  private String jwtTokenFileName;
+
+  private final StreamingJwtClaimsParser streamingParser = new StreamingJwtClaimsParser();
+  private String jwtToken;
+
+  @Setup
+  public void setUp() throws IOException {
+    jwtToken = TestUtils.getToken("security/" + jwtTokenFileName).trim();
+  }
+
+  @Benchmark
+  public JwtClaims jjwt() throws InvalidJwtException {
+    return JwtTokenUtility.getClaimsFromJwtToken(jwtToken);
+  }
+
+  @Benchmark
+  public JwtClaims streaming() throws InvalidJwtException {
+    return streamingParser.parse(jwtToken);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public JwtClaims streaming_contended() throws InvalidJwtException {
+    return streamingParser.parse(jwtToken);
+  }
+}
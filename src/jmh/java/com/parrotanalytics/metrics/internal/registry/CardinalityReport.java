@@ -0,0 +1,198 @@
+package com.arthur.metrics.internal.registry;
+
+import com.arthur.metrics.BenchmarkSupport;
+import com.arthur.metrics.config.ArthurMetricsProperties.PublisherConfig;
+import com.arthur.metrics.internal.MetricsServiceImpl;
+import com.arthur.metrics.meters.MetricsTimer;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Tags;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+
+/**
+ * Measures how the cost of the library grows with the number of series: retained heap per series, how fast series are created and how long
+ * publishing a step takes. Series are synthesized through the {@link com.arthur.metrics.service.Metrics} API as timers (like
+ * <code>restapi.duration</code>), spread over a number of metric names with one tag of as many values as needed.
+ * <p>
+ * Publishing goes through the {@link CloudWatchPublisher} and the AWS SDK to an in-process HTTP server that answers every
+ * <code>PutMetricData</code> request successfully, so that the numbers do not depend on the network. The cardinality limiter is not applied.
+ * <p>
+ * Settings are system properties: <code>series</code> (comma separated, default <code>10000,100000,1000000</code>), <code>metricNames</code> (default
+ * <code>100</code>) and <code>publishRuns</code> (default <code>5</code>, the median is reported). The report is printed and written to
+ * <code>target/cardinality-report.csv</code>, so that it can be compared between releases run on the same machine.
+ */
+public final class CardinalityReport {
+
+  private static final Duration STEP = Duration.ofMinutes(1);
+  private static final String PUT_METRIC_DATA_RESPONSE = "<PutMetricDataResponse xmlns=\"http://monitoring.amazonaws.com/doc/2010-08-01/\">"
+      + "<ResponseMetadata><RequestId>benchmark</RequestId></ResponseMetadata></PutMetricDataResponse>";
+  private static final String HEADER = "series,metric_names,meters,heap_bytes_per_series,series_created_per_second,publish_millis,"
+      + "requests_per_publish,request_bytes_per_publish";
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder requestBytes = new LongAdder();
+
+  private CardinalityReport() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<Integer> seriesCounts = Arrays.stream(System.getProperty("series", "10000,100000,1000000").split(","))
+        .map(String::trim)
+        .map(Integer::valueOf)
+        .collect(Collectors.toList());
+    int metricNames = Integer.getInteger("metricNames", 100);
+    int publishRuns = Integer.getInteger("publishRuns", 5);
+    new CardinalityReport().run(seriesCounts, metricNames, publishRuns);
+  }
+
+  private void run(List<Integer> seriesCounts, int metricNames, int publishRuns) throws IOException {
+    HttpServer server = startCloudWatchStub();
+    CloudWatchAsyncClient client = CloudWatchAsyncClient.builder()
+        .region(Region.US_EAST_1)
+        .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("benchmark", "benchmark")))
+        .endpointOverride(URI.create("http://localhost:" + server.getAddress().getPort()))
+        .build();
+    List<String> rows = new ArrayList<>();
+    try {
+      // the first, smallest run warms up the JVM and is repeated
+      measure(client, seriesCounts.get(0), metricNames, publishRuns);
+      for (int series : seriesCounts) {
+        rows.add(measure(client, series, metricNames, publishRuns));
+      }
+    } finally {
+      client.close();
+      server.stop(0);
+    }
+    writeReport(rows);
+  }
+
+  private String measure(CloudWatchAsyncClient client, int series, int metricNames, int publishRuns) {
+    MockClock clock = new MockClock();
+    // publishing with the timeout of the step would give up on the largest series counts
+    CloudWatchPublisher publisher = new CloudWatchPublisher(client, "Benchmark", new PublisherConfig(), Duration.ofMinutes(10));
+    ArthurCloudWatchMeterRegistry meterRegistry = BenchmarkSupport.cloudWatchMeterRegistry(publisher, STEP, clock);
+    // published explicitly
+    meterRegistry.stop();
+    MetricsServiceImpl metricsService = BenchmarkSupport.metricsService(meterRegistry);
+    try {
+      int tagValues = (series + metricNames - 1) / metricNames;
+      MetricsTimer[] timers = new MetricsTimer[metricNames];
+      Tags[] tags = new Tags[tagValues];
+      for (int i = 0; i < metricNames; i++) {
+        timers[i] = metricsService.createOrGetTimer("benchmark.metric." + i);
+      }
+      for (int j = 0; j < tagValues; j++) {
+        tags[j] = Tags.of("Value", "value-" + j);
+      }
+
+      long heapBefore = usedHeapAfterGc();
+      long startNanos = System.nanoTime();
+      record(timers, tags, series);
+      long creationNanos = System.nanoTime() - startNanos;
+      long heapAfter = usedHeapAfterGc();
+      int meters = meterRegistry.getMeters().size();
+
+      long[] publishNanos = new long[publishRuns];
+      for (int run = 0; run < publishRuns; run++) {
+        record(timers, tags, series);
+        clock.add(STEP);
+        requests.reset();
+        requestBytes.reset();
+        startNanos = System.nanoTime();
+        meterRegistry.publish();
+        publishNanos[run] = System.nanoTime() - startNanos;
+      }
+      Arrays.sort(publishNanos);
+
+      String row = String.format(Locale.ROOT, "%d,%d,%d,%d,%.0f,%d,%d,%d", series, metricNames, meters, (heapAfter - heapBefore) / series,
+          series / (creationNanos / 1e9), TimeUnit.NANOSECONDS.toMillis(publishNanos[publishRuns / 2]), requests.sum(), requestBytes.sum());
+      System.err.println("Measured " + series + " series");
+      return row;
+    } finally {
+      publisher.close();
+    }
+  }
+
+  private static void record(MetricsTimer[] timers, Tags[] tags, int series) {
+    for (int i = 0; i < series; i++) {
+      timers[i % timers.length].record(TimeUnit.MILLISECONDS.toNanos(1 + i % 100), tags[i / timers.length]);
+    }
+  }
+
+  private HttpServer startCloudWatchStub() throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newFixedThreadPool(new PublisherConfig().getMaxInFlightRequests()));
+    byte[] response = PUT_METRIC_DATA_RESPONSE.getBytes(StandardCharsets.UTF_8);
+    server.createContext("/", exchange -> {
+      try (InputStream body = exchange.getRequestBody()) {
+        requestBytes.add(body.transferTo(OutputStream.nullOutputStream()));
+      }
+      requests.increment();
+      exchange.getResponseHeaders().add("Content-Type", "text/xml");
+      exchange.sendResponseHeaders(200, response.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(response);
+      }
+    });
+    server.start();
+    return server;
+  }
+
+  private static long usedHeapAfterGc() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static void writeReport(List<String> rows) {
+    Runtime runtime = Runtime.getRuntime();
+    List<String> lines = new ArrayList<>();
+    lines.add("# java " + System.getProperty("java.version") + " (" + System.getProperty("java.vm.name") + "), " + runtime.availableProcessors()
+        + " processors, max heap " + runtime.maxMemory() / (1024 * 1024) + " MB, GC "
+        + ManagementFactory.getGarbageCollectorMXBeans().stream().map(GarbageCollectorMXBean::getName).collect(Collectors.joining("/")));
+    lines.add(HEADER);
+    lines.addAll(rows);
+    Path report = Path.of("target", "cardinality-report.csv");
+    try {
+      Files.createDirectories(report.getParent());
+      try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+        lines.forEach(writer::println);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    System.out.println();
+    lines.forEach(System.out::println);
+    System.out.println("Written to " + report.toAbsolutePath());
+  }
+}
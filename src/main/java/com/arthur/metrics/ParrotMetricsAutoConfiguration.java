@@ -2,6 +2,9 @@ package com.arthur.metrics;
 
 import com.arthur.metrics.config.ArthurMetricsConfiguration;
 import com.arthur.metrics.config.ArthurMetricsProperties;
+import com.arthur.metrics.config.MetricSeriesEndpointConfiguration;
+import com.arthur.metrics.config.PrometheusMeterRegistryConfiguration;
+import com.arthur.metrics.config.PrometheusScrapeConfiguration;
 import com.arthur.metrics.config.RestApiMonitoringFilterConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
@@ -11,7 +14,8 @@ import org.springframework.context.annotation.Import;
 
 @Configuration
 @EnableConfigurationProperties({ArthurMetricsProperties.class})
-@Import({ArthurMetricsConfiguration.class, RestApiMonitoringFilterConfiguration.class})
+@Import({ArthurMetricsConfiguration.class, RestApiMonitoringFilterConfiguration.class, PrometheusMeterRegistryConfiguration.class,
+    PrometheusScrapeConfiguration.class, MetricSeriesEndpointConfiguration.class})
 @AutoConfigureBefore({WebMvcAutoConfiguration.class})
 public class ArthurMetricsAutoConfiguration {
 
@@ -25,4 +25,10 @@ public @interface Count {
    * {@link #name()})
    */
   boolean captureOnFailureOnly() default false;
+
+  /**
+   * Interval the counter is published at, a multiple of <code>parrot.metrics.metrics-push-frequency-in-seconds</code>. <code>0</code> for the push
+   * frequency, unless the counter is routed by <code>parrot.metrics.step-tiers</code>.
+   */
+  int stepInSeconds() default 0;
 }
@@ -18,4 +18,20 @@ public @interface Timer {
    * Name of the metric
    */
   String name();
+
+  /**
+   * Percentiles to publish in addition to the average, count, max and sum, E.g. <code>{0.95, 0.99}</code>. None are published by default.
+   */
+  double[] percentiles() default {};
+
+  /**
+   * When <code>true</code>, the timer is published at a resolution of 1 second rather than once per step.
+   */
+  boolean highResolution() default false;
+
+  /**
+   * Interval the timer is published at, a multiple of <code>parrot.metrics.metrics-push-frequency-in-seconds</code>. <code>0</code> for the push
+   * frequency, unless the timer is routed by <code>parrot.metrics.step-tiers</code>.
+   */
+  int stepInSeconds() default 0;
 }
@@ -0,0 +1,21 @@
+package com.arthur.metrics.config;
+
+import com.arthur.metrics.internal.monitoring.MetricSeriesEndpoint;
+import com.arthur.metrics.internal.monitoring.SelfMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the <code>metricseries</code> actuator endpoint, if the application uses Spring Boot Actuator. It is exposed like any other endpoint, E.g.
+ * with <code>management.endpoints.web.exposure.include=metricseries</code>.
+ */
+@Configuration
+@ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+public class MetricSeriesEndpointConfiguration {
+
+  @Bean
+  public MetricSeriesEndpoint metricSeriesEndpoint(SelfMetrics selfMetrics) {
+    return new MetricSeriesEndpoint(selfMetrics);
+  }
+}
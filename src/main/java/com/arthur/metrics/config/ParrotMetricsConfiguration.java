@@ -1,29 +1,61 @@
 package com.arthur.metrics.config;
 
+import com.arthur.metrics.config.ArthurMetricsProperties.Backend;
+import com.arthur.metrics.config.ArthurMetricsProperties.IdleSeriesConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.PublisherConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.PublisherType;
+import com.arthur.metrics.config.ArthurMetricsProperties.SpoolConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.TargetConfig;
 import com.arthur.metrics.internal.MetricsServiceImpl;
 import com.arthur.metrics.internal.aop.CountMetricAspect;
 import com.arthur.metrics.internal.aop.TimerMetricAspect;
+import com.arthur.metrics.internal.async.AsyncRecordingPipeline;
+import com.arthur.metrics.internal.monitoring.SelfMetrics;
+import com.arthur.metrics.internal.registry.AdaptiveRateLimiter;
+import com.arthur.metrics.internal.registry.ArthurCloudWatchMeterRegistry;
+import com.arthur.metrics.internal.registry.CardinalityLimiter;
+import com.arthur.metrics.internal.registry.CloudWatchPublisher;
+import com.arthur.metrics.internal.registry.CompositePublisher;
+import com.arthur.metrics.internal.registry.EmfPublisher;
+import com.arthur.metrics.internal.registry.GzipRequestInterceptor;
+import com.arthur.metrics.internal.registry.IdleMeterSweeper;
+import com.arthur.metrics.internal.registry.MetricDataPublisher;
+import com.arthur.metrics.internal.registry.MetricSpool;
+import com.arthur.metrics.internal.registry.TargetPublisher;
 import com.arthur.metrics.service.Metrics;
 import io.micrometer.cloudwatch2.CloudWatchConfig;
-import io.micrometer.cloudwatch2.CloudWatchMeterRegistry;
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClientBuilder;
 
 @Configuration
 @EnableAspectJAutoProxy
 @ComponentScan(basePackages = "com.arthur.metrics.internal.aop")
 public class ArthurMetricsConfiguration {
 
+  // tags that are derived from configuration, so they do not add to the cardinality of a metric
+  private static final Set<String> BASE_TAG_KEYS = Set.of(
+      MetricsServiceImpl.TAG_APPLICATION_NAME, MetricsServiceImpl.TAG_DEPLOYMENT_ENVIRONMENT, MetricsServiceImpl.TAG_INSTANCE_TYPE_NAME);
+
   @Value("${spring.application.name}")
   private String applicationName;
 
@@ -31,16 +63,56 @@ public class ArthurMetricsConfiguration {
   private ArthurMetricsProperties parrotMetricsProperties;
 
   @Bean
-  public CloudWatchAsyncClient cloudWatchAsyncClient() {
-    return CloudWatchAsyncClient
+  @ConditionalOnProperty(prefix = "parrot.metrics.publisher.compression", name = "enabled", havingValue = "true")
+  public GzipRequestInterceptor gzipRequestInterceptor() {
+    return new GzipRequestInterceptor(parrotMetricsProperties.getPublisher().getCompression());
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "parrot.metrics.publisher.scheduler", name = "enabled", havingValue = "true")
+  public AdaptiveRateLimiter adaptiveRateLimiter() {
+    return new AdaptiveRateLimiter(parrotMetricsProperties.getPublisher().getScheduler());
+  }
+
+  @Bean
+  public SelfMetrics selfMetrics() {
+    return new SelfMetrics();
+  }
+
+  @Bean
+  public CloudWatchAsyncClient cloudWatchAsyncClient(ObjectProvider<GzipRequestInterceptor> gzipRequestInterceptor) {
+    CloudWatchAsyncClientBuilder builder = CloudWatchAsyncClient
         .builder()
-        .region(Region.of(parrotMetricsProperties.getCloudWatchConfig().getAwsRegion()))
-        .build();
+        .region(Region.of(parrotMetricsProperties.getCloudWatchConfig().getAwsRegion()));
+    gzipRequestInterceptor.ifAvailable(interceptor -> builder.overrideConfiguration(configuration -> configuration.addExecutionInterceptor(interceptor)));
+    return builder.build();
   }
 
   @Bean
-  public Metrics metrics(CloudWatchAsyncClient cloudWatchAsyncClient) {
-    return new MetricsServiceImpl(createMeterRegistry(cloudWatchAsyncClient), applicationName, parrotMetricsProperties);
+  @ConditionalOnProperty(prefix = "parrot.metrics.async-recording", name = "enabled", havingValue = "true")
+  public AsyncRecordingPipeline asyncRecordingPipeline() {
+    return new AsyncRecordingPipeline(parrotMetricsProperties.getAsyncRecording());
+  }
+
+  // closed before the CloudWatch client it depends on, so the registry can still publish the step in progress
+  @Bean(destroyMethod = "close")
+  public Metrics metrics(CloudWatchAsyncClient cloudWatchAsyncClient,
+      @Qualifier(PrometheusMeterRegistryConfiguration.PROMETHEUS_METER_REGISTRY) ObjectProvider<MeterRegistry> prometheusMeterRegistry,
+      ObjectProvider<AsyncRecordingPipeline> asyncRecordingPipeline, ObjectProvider<GzipRequestInterceptor> gzipRequestInterceptor,
+      ObjectProvider<AdaptiveRateLimiter> adaptiveRateLimiter, SelfMetrics selfMetrics) {
+    MeterRegistry meterRegistry = parrotMetricsProperties.getBackend() == Backend.PROMETHEUS
+        ? configureMeterRegistry(prometheusMeterRegistry.getIfAvailable(() -> {
+          throw new IllegalStateException("The prometheus backend requires io.micrometer:micrometer-registry-prometheus on the classpath");
+        }))
+        : createCloudWatchMeterRegistry(cloudWatchAsyncClient, adaptiveRateLimiter.getIfAvailable(), selfMetrics);
+    selfMetrics.monitor(meterRegistry);
+    Metrics metrics = new MetricsServiceImpl(meterRegistry, applicationName, parrotMetricsProperties, asyncRecordingPipeline.getIfAvailable());
+    if (parrotMetricsProperties.getSelfMetrics().isEnabled()) {
+      selfMetrics.bindTo(metrics);
+    }
+    gzipRequestInterceptor.ifAvailable(interceptor -> interceptor.bindTo(metrics));
+    adaptiveRateLimiter.ifAvailable(rateLimiter -> rateLimiter.bindTo(metrics));
+    return metrics;
   }
 
   @Bean
@@ -53,10 +125,80 @@ public class ArthurMetricsConfiguration {
     return new TimerMetricAspect(metricsService);
   }
 
-  private MeterRegistry createMeterRegistry(CloudWatchAsyncClient cloudWatchAsyncClient) {
+  private MeterRegistry createCloudWatchMeterRegistry(CloudWatchAsyncClient cloudWatchAsyncClient, AdaptiveRateLimiter rateLimiter,
+      SelfMetrics selfMetrics) {
     CloudWatchConfig cloudWatchConfig = setupCloudWatchConfig();
-    return new CloudWatchMeterRegistry(cloudWatchConfig, Clock.SYSTEM, cloudWatchAsyncClient) {
-    };
+    PublisherConfig publisherConfig = parrotMetricsProperties.getPublisher();
+    MetricDataPublisher publisher = publisherConfig.getTargets().isEmpty()
+        ? createPublisher(publisherConfig.getType(), cloudWatchAsyncClient, rateLimiter, selfMetrics, cloudWatchConfig.namespace(),
+            cloudWatchConfig.step(), "")
+        : createTargetPublishers(cloudWatchAsyncClient, rateLimiter, selfMetrics, cloudWatchConfig);
+    ArthurCloudWatchMeterRegistry cloudWatchMeterRegistry = new ArthurCloudWatchMeterRegistry(cloudWatchConfig, Clock.SYSTEM, publisher,
+        parrotMetricsProperties.getSketches(), parrotMetricsProperties.getHighResolution(), parrotMetricsProperties.getStepTiers(), publisherConfig);
+    MeterRegistry meterRegistry = configureMeterRegistry(cloudWatchMeterRegistry);
+    // swept by the publishing thread of the registry, so it needs no thread of its own
+    if (parrotMetricsProperties.getMeterExpiry().isEnabled()) {
+      int maxIdleSteps = parrotMetricsProperties.getMeterExpiry().getMaxIdleSteps();
+      checkHeartbeatBeforeExpiry(publisherConfig.getIdleSeries(), maxIdleSteps);
+      cloudWatchMeterRegistry.expireIdleMeters(new IdleMeterSweeper(meterRegistry, maxIdleSteps, BASE_TAG_KEYS));
+    }
+    return meterRegistry;
+  }
+
+  // an idle series would otherwise be removed before its first heartbeat, and alarms on missing data would fire
+  private static void checkHeartbeatBeforeExpiry(IdleSeriesConfig idleSeriesConfig, int maxIdleSteps) {
+    if (idleSeriesConfig.isSkipped() && idleSeriesConfig.getHeartbeatSteps() > 0 && idleSeriesConfig.getHeartbeatSteps() >= maxIdleSteps) {
+      throw new IllegalArgumentException("heartbeatSteps of idle series (" + idleSeriesConfig.getHeartbeatSteps()
+          + ") must be less than maxIdleSteps of meter expiry (" + maxIdleSteps + ")");
+    }
+  }
+
+  private MetricDataPublisher createTargetPublishers(CloudWatchAsyncClient cloudWatchAsyncClient, AdaptiveRateLimiter rateLimiter,
+      SelfMetrics selfMetrics, CloudWatchConfig cloudWatchConfig) {
+    int stepInSeconds = parrotMetricsProperties.getMetricsPushFrequencyInSeconds();
+    List<TargetPublisher> targetPublishers = new ArrayList<>();
+    List<TargetConfig> targetConfigs = parrotMetricsProperties.getPublisher().getTargets();
+    for (int i = 0; i < targetConfigs.size(); i++) {
+      TargetConfig targetConfig = targetConfigs.get(i);
+      int targetStepInSeconds = targetConfig.getStepInSeconds() != null ? targetConfig.getStepInSeconds() : stepInSeconds;
+      if (targetStepInSeconds <= 0 || targetStepInSeconds % stepInSeconds != 0) {
+        throw new IllegalArgumentException("stepInSeconds of a target must be a multiple of metricsPushFrequencyInSeconds (" + stepInSeconds + ")");
+      }
+      MetricDataPublisher publisher = createPublisher(targetConfig.getType(), cloudWatchAsyncClient, rateLimiter, selfMetrics, cloudWatchConfig.namespace(),
+          Duration.ofSeconds(targetStepInSeconds), "." + i);
+      targetPublishers.add(new TargetPublisher(publisher, targetConfig, targetStepInSeconds / stepInSeconds));
+    }
+    return new CompositePublisher(targetPublishers);
+  }
+
+  /**
+   * @param rateLimiter     Shared by all CloudWatch publishers, as they share the request quota of the account
+   * @param spoolFileSuffix Appended to the spool file, so that several CloudWatch publishers do not share it
+   */
+  private MetricDataPublisher createPublisher(PublisherType type, CloudWatchAsyncClient cloudWatchAsyncClient, AdaptiveRateLimiter rateLimiter,
+      SelfMetrics selfMetrics, String namespace, Duration step, String spoolFileSuffix) {
+    PublisherConfig publisherConfig = parrotMetricsProperties.getPublisher();
+    if (type == PublisherType.EMF) {
+      return new EmfPublisher(namespace, publisherConfig.getEmf());
+    }
+    SpoolConfig spoolConfig = publisherConfig.getSpool();
+    MetricSpool spool = null;
+    if (spoolConfig.isEnabled()) {
+      try {
+        spool = new MetricSpool(Path.of(spoolConfig.getFile() + spoolFileSuffix), spoolConfig.getMaxSizeInBytes());
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to open " + spoolConfig.getFile() + spoolFileSuffix, e);
+      }
+    }
+    return new CloudWatchPublisher(cloudWatchAsyncClient, namespace, publisherConfig, step, spool, rateLimiter, selfMetrics);
+  }
+
+  private MeterRegistry configureMeterRegistry(MeterRegistry meterRegistry) {
+    CardinalityLimiter cardinalityLimiter = new CardinalityLimiter(meterRegistry, parrotMetricsProperties.getCardinality(), BASE_TAG_KEYS);
+    meterRegistry.config()
+        .meterFilter(cardinalityLimiter)
+        .onMeterRemoved(cardinalityLimiter::forget);
+    return meterRegistry;
   }
 
   private CloudWatchConfig setupCloudWatchConfig() {
@@ -1,5 +1,9 @@
 package com.arthur.metrics.config;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -9,6 +13,25 @@ public class ArthurMetricsProperties {
 
   private CloudWatchConfig cloudWatchConfig = new CloudWatchConfig();
   private TagsConfig tags = new TagsConfig();
+  private RestApiConfig restApi = new RestApiConfig();
+  private CardinalityConfig cardinality = new CardinalityConfig();
+  private MeterExpiryConfig meterExpiry = new MeterExpiryConfig();
+  private AsyncRecordingConfig asyncRecording = new AsyncRecordingConfig();
+  private PercentilesConfig percentiles = new PercentilesConfig();
+  private SketchConfig sketches = new SketchConfig();
+  private HighResolutionConfig highResolution = new HighResolutionConfig();
+  /**
+   * Steps that are longer than {@link #metricsPushFrequencyInSeconds}, for the metrics routed to them. Metrics that are not routed to a tier are
+   * published every {@link #metricsPushFrequencyInSeconds}.
+   */
+  private List<StepTierConfig> stepTiers = new ArrayList<>();
+  private PublisherConfig publisher = new PublisherConfig();
+  /**
+   * Where the metrics are recorded for, see {@link Backend}.
+   */
+  private Backend backend = Backend.CLOUDWATCH;
+  private PrometheusScrapeConfig prometheus = new PrometheusScrapeConfig();
+  private SelfMetricsConfig selfMetrics = new SelfMetricsConfig();
 
   private int metricsPushFrequencyInSeconds = 30;
   private CollectionGroup collectionGroup;
@@ -37,6 +60,410 @@ public class ArthurMetricsProperties {
     private InstanceTypeTagValue instanceType;
   }
 
+  @Data
+  public static class RestApiConfig {
+
+    /**
+     * Templates applied (in order) to request URIs that were not matched by a Spring MVC handler, E.g. <code>^/titles/[^/]+$</code> to
+     * <code>/titles/{id}</code>. The first template whose pattern matches the whole URI wins.
+     */
+    private List<UriTemplateConfig> uriTemplates = new ArrayList<>();
+    /**
+     * When <code>true</code>, path segments of unmatched request URIs that look like identifiers (numbers, UUIDs or long hex strings) are replaced by
+     * <code>{id}</code>.
+     */
+    private boolean normalizeIdSegments = true;
+    /**
+     * Maximum number of raw request URIs for which the normalized value is cached.
+     */
+    private int uriCacheMaxSize = 10000;
+    private JwtCacheConfig jwtCache = new JwtCacheConfig();
+    /**
+     * How the claims are extracted from bearer tokens, see {@link JwtParserType}.
+     */
+    private JwtParserType jwtParser = JwtParserType.JJWT;
+    private SamplingConfig sampling = new SamplingConfig();
+  }
+
+  @Data
+  public static class SamplingConfig {
+
+    /**
+     * When <code>true</code>, <code>restapi.duration</code> is recorded for every request with the low cardinality tags only, while the tags of
+     * the user, account and IP address are only recorded for sampled requests (as <code>restapi.duration.sampled</code>).
+     */
+    private boolean enabled = false;
+    /**
+     * On average one in <code>sampleEvery</code> requests is sampled.
+     */
+    private int sampleEvery = 100;
+    /**
+     * Upper limit of sampled requests per second. A value <code>&lt;= 0</code> disables the limit.
+     */
+    private int maxSamplesPerSecond = 0;
+  }
+
+  @Data
+  public static class JwtCacheConfig {
+
+    /**
+     * When <code>true</code>, the claims of a bearer token are only parsed once per {@link #ttlInSeconds} (or until the token expires).
+     */
+    private boolean enabled = true;
+    /**
+     * Maximum number of tokens for which the claims are cached.
+     */
+    private int maxSize = 1000;
+    private long ttlInSeconds = 300;
+  }
+
+  @Data
+  public static class UriTemplateConfig {
+
+    /**
+     * Regular expression that has to match the whole request URI
+     */
+    private String pattern;
+    /**
+     * Value used for the <code>Request URI</code> tag, which can refer to groups of the {@link #pattern} (E.g. <code>/titles/$1/episodes</code>)
+     */
+    private String template;
+  }
+
+  @Data
+  public static class CardinalityConfig {
+
+    /**
+     * Maximum number of distinct tag sets per metric name. Tag sets beyond the limit are collapsed into a single series whose non-base tags have the
+     * value <code>__overflow__</code>. A value <code>&lt;= 0</code> disables the limit, which is the default, so that existing series are not collapsed
+     * without an explicit limit.
+     */
+    private int maxTagSetsPerMetric = 0;
+    /**
+     * Per metric name overrides of {@link #maxTagSetsPerMetric}, E.g. <code>"[restapi.duration]": 5000</code>
+     */
+    private Map<String, Integer> metricLimits = new HashMap<>();
+  }
+
+  @Data
+  public static class MeterExpiryConfig {
+
+    private boolean enabled = false;
+    /**
+     * Number of consecutive steps of a meter without any recording after which a counter or timer is removed from the registry. A meter of one of the
+     * {@link #stepTiers} is idle for that many steps of its tier. It is registered again when it records the next time.
+     */
+    private int maxIdleSteps = 10;
+  }
+
+  @Data
+  public static class AsyncRecordingConfig {
+
+    /**
+     * When <code>true</code>, counters and timers hand their recordings to a background thread instead of updating the registry on the calling thread.
+     */
+    private boolean enabled = false;
+    /**
+     * Maximum number of pending recordings (rounded up to a power of two).
+     */
+    private int bufferSize = 65536;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+  }
+
+  @Data
+  public static class PercentilesConfig {
+
+    /**
+     * Names of the timers that publish percentiles, E.g. <code>restapi.duration</code>. Percentiles can also be enabled via
+     * {@link com.arthur.metrics.annotations.Timer#percentiles()} or {@link com.arthur.metrics.service.Metrics#publishPercentiles(String, double...)}.
+     */
+    private List<String> metricNames = new ArrayList<>();
+    private double[] percentiles = {0.5, 0.95, 0.99};
+    /**
+     * Number of significant digits of the recorded durations, which determines the (fixed) memory used per series.
+     */
+    private int precision = 1;
+    /**
+     * Period covered by the percentiles. Defaults to the push frequency.
+     */
+    private Integer windowInSeconds;
+    /**
+     * Number of histograms the window is split into, so that the window is reset gradually rather than all at once.
+     */
+    private int bufferLength = 3;
+  }
+
+  @Data
+  public static class SketchConfig {
+
+    /**
+     * Names of the timers that publish their distribution as <code>&lt;metric name&gt;.distribution</code>, from which CloudWatch computes
+     * percentiles across all instances.
+     */
+    private List<String> metricNames = new ArrayList<>();
+    /**
+     * Fixed number of buckets per series. The resolution is the highest one at which the range below fits into these buckets.
+     */
+    private int maxBuckets = 128;
+    /**
+     * Range of durations with full resolution, shorter and longer durations are counted in the first and last bucket respectively.
+     */
+    private double minValueInMillis = 1;
+    private double maxValueInMillis = 60000;
+  }
+
+  @Data
+  public static class HighResolutionConfig {
+
+    /**
+     * Regular expressions matching the whole name of the timers that are published at a resolution of 1 second, E.g. <code>restapi\.duration</code>.
+     * Timers can also be selected via {@link com.arthur.metrics.annotations.Timer#highResolution()} or
+     * {@link com.arthur.metrics.service.Metrics#publishHighResolution(String)}.
+     */
+    private List<String> metricNamePatterns = new ArrayList<>();
+  }
+
+  @Data
+  public static class StepTierConfig {
+
+    /**
+     * Interval the metrics of the tier are aggregated over and published at, a multiple of {@code metricsPushFrequencyInSeconds}.
+     */
+    private int stepInSeconds;
+    /**
+     * Prefixes of the metric names routed to the tier, E.g. <code>collector.</code>. A metric is routed to the first tier with a matching prefix.
+     * Metrics can also be routed via the <code>stepInSeconds</code> of {@link com.arthur.metrics.annotations.Timer} and
+     * {@link com.arthur.metrics.annotations.Count}, or {@link com.arthur.metrics.service.Metrics#publishWithStep(String, java.time.Duration)}.
+     */
+    private List<String> metricNamePrefixes = new ArrayList<>();
+  }
+
+  @Data
+  public static class PublisherConfig {
+
+    /**
+     * Where the metrics are published to, see {@link PublisherType}.
+     */
+    private PublisherType type = PublisherType.CLOUDWATCH_API;
+    private EmfConfig emf = new EmfConfig();
+
+    /**
+     * How timers are mapped to CloudWatch metrics, see {@link TimerEncoding}.
+     */
+    private TimerEncoding timerEncoding = TimerEncoding.SPLIT;
+    /**
+     * Limits of a single <code>PutMetricData</code> request. A request is sent once either of them is reached.
+     */
+    private int maxDatumsPerRequest = 1000;
+    private int maxRequestSizeInBytes = 1000000;
+    /**
+     * Maximum number of <code>PutMetricData</code> requests that are sent concurrently.
+     */
+    private int maxInFlightRequests = 4;
+    private CompressionConfig compression = new CompressionConfig();
+    private SpoolConfig spool = new SpoolConfig();
+    private SchedulerConfig scheduler = new SchedulerConfig();
+    private IdleSeriesConfig idleSeries = new IdleSeriesConfig();
+    /**
+     * Targets the metrics are published to, each with their own filters and step. When empty, all metrics are published to {@link #type}.
+     */
+    private List<TargetConfig> targets = new ArrayList<>();
+  }
+
+  @Data
+  public static class SpoolConfig {
+
+    /**
+     * When <code>true</code>, <code>PutMetricData</code> requests that failed for a transient reason are kept in a memory-mapped file and replayed
+     * with their original timestamps once publishing succeeds again.
+     */
+    private boolean enabled = false;
+    private String file = "metrics-spool/cloudwatch.spool";
+    /**
+     * Size of the file. Once it is full, the oldest requests are evicted.
+     */
+    private int maxSizeInBytes = 64 * 1024 * 1024;
+    /**
+     * Maximum number of spooled requests that are replayed per step, so that a recovering endpoint is not flooded.
+     */
+    private int maxReplayedRequestsPerStep = 10;
+  }
+
+  @Data
+  public static class SchedulerConfig {
+
+    /**
+     * When <code>true</code>, each instance publishes at its own offset into the step, and <code>PutMetricData</code> requests are rate limited
+     * with a rate that backs off when CloudWatch throttles them. The current rate is published as <code>metrics.publish.rate</code>.
+     */
+    private boolean enabled = false;
+    /**
+     * The offset of an instance is chosen randomly at startup, between 0 and this fraction of the step.
+     */
+    private double maxJitterRatio = 0.5;
+    private double minRequestsPerSecond = 1;
+    private double maxRequestsPerSecond = 20;
+    /**
+     * Number of requests that may be sent at once, after no request has been sent for a while.
+     */
+    private int burstRequests = 5;
+    /**
+     * Requests per second that are added to the rate for each second of successful requests.
+     */
+    private double additiveIncrease = 1;
+    /**
+     * Factor the rate is multiplied with when requests are throttled.
+     */
+    private double multiplicativeDecrease = 0.5;
+  }
+
+  @Data
+  public static class IdleSeriesConfig {
+
+    /**
+     * When <code>true</code>, counters and timers that recorded nothing in a step are not published for that step.
+     */
+    private boolean skipped = false;
+    /**
+     * Idle series are still published every this many steps, so that alarms on missing data keep working. <code>0</code> to never publish them. Must be
+     * less than {@link MeterExpiryConfig#maxIdleSteps} when meter expiry is enabled, so that an idle series has its heartbeat before it is removed.
+     */
+    private int heartbeatSteps = 5;
+  }
+
+  @Data
+  public static class TargetConfig {
+
+    private PublisherType type = PublisherType.CLOUDWATCH_API;
+    /**
+     * Interval the metrics are published to the target at, a multiple of {@code metricsPushFrequencyInSeconds}, which is the default.
+     */
+    private Integer stepInSeconds;
+    /**
+     * Regular expressions that have to match the whole metric name. A metric is published if it matches any of the allowlist (when not empty)
+     * and none of the denylist.
+     */
+    private List<String> metricNameAllowlist = new ArrayList<>();
+    private List<String> metricNameDenylist = new ArrayList<>();
+    /**
+     * Tag keys that are kept (when not empty) or removed. Series that only differ in removed tags are aggregated into one series.
+     */
+    private List<String> tagAllowlist = new ArrayList<>();
+    private List<String> tagDenylist = new ArrayList<>();
+  }
+
+  @Data
+  public static class EmfConfig {
+
+    private EmfOutput output = EmfOutput.STDOUT;
+    /**
+     * File the log events are appended to, if written to a {@link EmfOutput#FILE}.
+     */
+    private String file = "logs/metrics-emf.log";
+    /**
+     * Size at which the file is rotated.
+     */
+    private long maxFileSizeInBytes = 10 * 1024 * 1024;
+    /**
+     * Number of rotated files that are kept.
+     */
+    private int maxFiles = 5;
+  }
+
+  @Data
+  public static class CompressionConfig {
+
+    /**
+     * When <code>true</code>, <code>PutMetricData</code> requests are sent gzip compressed.
+     */
+    private boolean enabled = false;
+    /**
+     * Smaller requests are sent uncompressed, as compressing them saves too little to be worth it.
+     */
+    private int minRequestSizeInBytes = 10240;
+  }
+
+  @Data
+  public static class SelfMetricsConfig {
+
+    /**
+     * When <code>true</code>, the library publishes metrics about itself (<code>metrics.publish.*</code>, <code>metrics.registry.*</code>,
+     * <code>metrics.filter.overhead</code>) along with the metrics of the application.
+     */
+    private boolean enabled = false;
+  }
+
+  @Data
+  public static class PrometheusScrapeConfig {
+
+    /**
+     * Servlet path the Prometheus scrape endpoint is served at, if the {@link Backend#PROMETHEUS} backend is used.
+     */
+    private String path = "/metrics/prometheus";
+  }
+
+  public enum Backend {
+    /**
+     * Metrics are aggregated per step and published to CloudWatch, see {@link PublisherConfig}.
+     */
+    CLOUDWATCH,
+    /**
+     * Metrics are kept cumulative and exposed on a scrape endpoint, see {@link PrometheusScrapeConfig}.
+     */
+    PROMETHEUS
+  }
+
+  public enum PublisherType {
+    /**
+     * Metrics are sent with <code>PutMetricData</code> requests.
+     */
+    CLOUDWATCH_API,
+    /**
+     * Metrics are written as CloudWatch embedded metric format log events, which CloudWatch Logs turns into metrics. Requires the log output to be
+     * shipped to CloudWatch Logs.
+     */
+    EMF
+  }
+
+  public enum EmfOutput {
+    STDOUT,
+    FILE
+  }
+
+  public enum TimerEncoding {
+    /**
+     * A timer is published as <code>&lt;metric name&gt;.sum</code>, <code>.count</code>, <code>.avg</code> and <code>.max</code>.
+     */
+    SPLIT,
+    /**
+     * A timer is published as a single <code>&lt;metric name&gt;</code> statistic set with sample count, sum, minimum and maximum. Steps without any
+     * recording are not published.
+     */
+    STATISTIC_SET
+  }
+
+  public enum OverflowPolicy {
+    /**
+     * Drop recordings while the buffer is full. Dropped recordings are counted.
+     */
+    DROP,
+    /**
+     * Let the caller wait until the buffer has room for the recording.
+     */
+    BLOCK
+  }
+
+  public enum JwtParserType {
+    /**
+     * Parses the whole token with jjwt and maps the claims with Gson.
+     */
+    JJWT,
+    /**
+     * Only decodes the payload and scans it for the claims used as dimensions, without materializing any other claim.
+     */
+    STREAMING
+  }
+
   public enum InstanceTypeTagValue {
     DATA_COLLECTOR("data_collector");
 
@@ -0,0 +1,24 @@
+package com.arthur.metrics.config;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Only loaded with the optional <code>micrometer-registry-prometheus</code> dependency, so that the library does not require it for CloudWatch.
+ */
+@Configuration
+@ConditionalOnClass(PrometheusMeterRegistry.class)
+@ConditionalOnProperty(prefix = "parrot.metrics", name = "backend", havingValue = "prometheus")
+public class PrometheusMeterRegistryConfiguration {
+
+  public static final String PROMETHEUS_METER_REGISTRY = "prometheusMeterRegistry";
+
+  @Bean(PROMETHEUS_METER_REGISTRY)
+  public PrometheusMeterRegistry prometheusMeterRegistry() {
+    return new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+  }
+}
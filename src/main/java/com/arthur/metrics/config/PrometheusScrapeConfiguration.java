@@ -0,0 +1,32 @@
+package com.arthur.metrics.config;
+
+import com.arthur.metrics.internal.prometheus.PrometheusScrapeServlet;
+import com.arthur.metrics.internal.prometheus.PrometheusTextWriter;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnClass(PrometheusMeterRegistry.class)
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(prefix = "parrot.metrics", name = "backend", havingValue = "prometheus")
+@Log4j2
+public class PrometheusScrapeConfiguration {
+
+  @Bean
+  public ServletRegistrationBean<PrometheusScrapeServlet> registerPrometheusScrapeServlet(PrometheusMeterRegistry prometheusMeterRegistry,
+      ArthurMetricsProperties parrotMetricsProperties) {
+    String path = parrotMetricsProperties.getPrometheus().getPath();
+    ServletRegistrationBean<PrometheusScrapeServlet> registrationBean
+        = new ServletRegistrationBean<>(new PrometheusScrapeServlet(new PrometheusTextWriter(prometheusMeterRegistry)), path);
+    registrationBean.setName("prometheusScrapeServlet");
+    log.info("Serving the Prometheus scrape endpoint at {}.", path);
+    return registrationBean;
+  }
+}
@@ -1,6 +1,10 @@
 package com.arthur.metrics.config;
 
+import com.arthur.metrics.internal.filter.JwtClaimsCache;
 import com.arthur.metrics.internal.filter.MetricsFilter;
+import com.arthur.metrics.internal.filter.RequestSampler;
+import com.arthur.metrics.internal.filter.RequestUriNormalizer;
+import com.arthur.metrics.internal.monitoring.SelfMetrics;
 import com.arthur.metrics.service.Metrics;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -19,10 +23,14 @@ import org.springframework.core.Ordered;
 public class RestApiMonitoringFilterConfiguration {
 
   @Bean
-  public FilterRegistrationBean<MetricsFilter> registerMetricFilter(Metrics metricsService) {
+  public FilterRegistrationBean<MetricsFilter> registerMetricFilter(Metrics metricsService, ArthurMetricsProperties parrotMetricsProperties,
+      SelfMetrics selfMetrics) {
     FilterRegistrationBean<MetricsFilter> registrationBean
         = new FilterRegistrationBean<>();
-    registrationBean.setFilter(new MetricsFilter(metricsService));
+    ArthurMetricsProperties.RestApiConfig restApiConfig = parrotMetricsProperties.getRestApi();
+    RequestSampler requestSampler = restApiConfig.getSampling().isEnabled() ? new RequestSampler(restApiConfig.getSampling()) : null;
+    registrationBean.setFilter(new MetricsFilter(metricsService, new RequestUriNormalizer(restApiConfig), new JwtClaimsCache(restApiConfig), requestSampler,
+        parrotMetricsProperties.getSelfMetrics().isEnabled() ? selfMetrics : null));
     registrationBean.setOrder(Ordered.HIGHEST_PRECEDENCE);
     log.info("Successfully registered the filter to monitor APIs.");
     return registrationBean;
@@ -0,0 +1,46 @@
+package com.arthur.metrics.internal;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe cache which never holds more than (approximately, under concurrent writes) <code>maxSize</code> entries. Reads are a single lock-free map
+ * lookup. When the cache is full, an arbitrary entry is evicted to make room for the new one, which is cheap and good enough for caches of derived values that
+ * are recomputed on a miss.
+ */
+public class BoundedCache<K, V> {
+
+  private final ConcurrentMap<K, V> entries = new ConcurrentHashMap<>();
+  private final int maxSize;
+
+  public BoundedCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Maximum size of the cache must be positive, but was " + maxSize);
+    }
+    this.maxSize = maxSize;
+  }
+
+  public V get(K key) {
+    return entries.get(key);
+  }
+
+  public void put(K key, V value) {
+    if (entries.size() >= maxSize && !entries.containsKey(key)) {
+      Iterator<K> iterator = entries.keySet().iterator();
+      if (iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+    entries.put(key, value);
+  }
+
+  public void remove(K key) {
+    entries.remove(key);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+}
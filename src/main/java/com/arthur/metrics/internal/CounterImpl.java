@@ -1,20 +1,66 @@
 package com.arthur.metrics.internal;
 
+import com.arthur.metrics.internal.async.AsyncRecordable;
+import com.arthur.metrics.internal.async.AsyncRecordingPipeline;
 import com.arthur.metrics.meters.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import lombok.Builder;
 
-@Builder
-public class CounterImpl implements Counter {
+public class CounterImpl implements Counter, AsyncRecordable {
 
-  private final io.micrometer.core.instrument.Counter counter;
+  private final String metricName;
+  private final MeterRegistry meterRegistry;
+  private final Tags tags;
+  // null when recording synchronously
+  private final AsyncRecordingPipeline recordingPipeline;
+  // resolved on first use, so that handles can be created up front without publishing an empty series
+  private volatile io.micrometer.core.instrument.Counter counter;
+
+  @Builder
+  private CounterImpl(String metricName, MeterRegistry meterRegistry, Tags tags, AsyncRecordingPipeline recordingPipeline) {
+    this.metricName = metricName;
+    this.meterRegistry = meterRegistry;
+    this.tags = tags;
+    this.recordingPipeline = recordingPipeline;
+  }
 
   @Override
   public void increment() {
-    counter.increment();
+    increment(1);
   }
 
   @Override
   public void increment(int amount) {
-    counter.increment(amount);
+    if (recordingPipeline != null) {
+      recordingPipeline.record(this, amount, null);
+    } else {
+      getCounter().increment(amount);
+    }
+  }
+
+  @Override
+  public void applyRecording(long value, Tags recordingTags) {
+    getCounter().increment(value);
+  }
+
+  private io.micrometer.core.instrument.Counter getCounter() {
+    io.micrometer.core.instrument.Counter resolved = counter;
+    if (resolved == null) {
+      // racing threads resolve the same meter from the registry, so there is no need to synchronize
+      resolved = meterRegistry.counter(metricName, tags);
+      counter = resolved;
+    }
+    return resolved;
+  }
+
+  /**
+   * Drops the resolved meter when it was removed from the registry (E.g. after being idle), so that the next increment registers it again.
+   */
+  void onMeterRemoved(Meter meter) {
+    if (counter == meter) {
+      counter = null;
+    }
   }
 }
@@ -1,12 +1,24 @@
 package com.arthur.metrics.internal;
 
 import com.arthur.metrics.config.ArthurMetricsProperties;
+import com.arthur.metrics.internal.async.AsyncRecordingPipeline;
+import com.arthur.metrics.internal.registry.ArthurCloudWatchMeterRegistry;
+import com.arthur.metrics.internal.registry.PercentileMeterFilter;
 import com.arthur.metrics.meters.Counter;
 import com.arthur.metrics.meters.MetricsTimer;
 import com.arthur.metrics.service.Metrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.util.StringUtils;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 public class MetricsServiceImpl implements Metrics {
 
@@ -26,39 +38,177 @@ public class MetricsServiceImpl implements Metrics {
   private final MeterRegistry meterRegistry;
   private final String applicationName;
   private final ArthurMetricsProperties parrotMetricsProperties;
+  // null when recording synchronously
+  private final AsyncRecordingPipeline recordingPipeline;
+  private final PercentileMeterFilter percentileMeterFilter;
+
+  /*
+   * Tags are derived from configuration that does not change after start up, so they are only built once.
+   */
+  private final Tags basicTags;
+  private final Tags successTags;
+  private final Tags failureTags;
+
+  /*
+   * Handles are cached by metric name (one map per Result tag value), so that looking up an existing meter is a single lock-free map read instead of
+   * building the tags and resolving the meter in the registry on every call.
+   */
+  private final ConcurrentMap<String, CounterImpl> counters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, CounterImpl> successCounters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, CounterImpl> failureCounters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, MetricsTimerImpl> timers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, MetricsTimerImpl> successTimers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, MetricsTimerImpl> failureTimers = new ConcurrentHashMap<>();
+  // kept in fields, as capturing lambdas would otherwise be allocated on every lookup
+  private final Function<String, CounterImpl> counterFactory;
+  private final Function<String, CounterImpl> successCounterFactory;
+  private final Function<String, CounterImpl> failureCounterFactory;
+  private final Function<String, MetricsTimerImpl> timerFactory;
+  private final Function<String, MetricsTimerImpl> successTimerFactory;
+  private final Function<String, MetricsTimerImpl> failureTimerFactory;
 
   public MetricsServiceImpl(MeterRegistry meterRegistry, String applicationName, ArthurMetricsProperties parrotMetricsProperties) {
+    this(meterRegistry, applicationName, parrotMetricsProperties, null);
+  }
+
+  public MetricsServiceImpl(MeterRegistry meterRegistry, String applicationName, ArthurMetricsProperties parrotMetricsProperties,
+      AsyncRecordingPipeline recordingPipeline) {
     this.meterRegistry = meterRegistry;
     this.parrotMetricsProperties = parrotMetricsProperties;
+    this.recordingPipeline = recordingPipeline;
     this.applicationName = StringUtils.isNotBlank(parrotMetricsProperties.getAppName()) ? parrotMetricsProperties.getAppName() : applicationName;
+    this.basicTags = createTags();
+    this.successTags = basicTags.and(TAG_RESULT, getResultTagValue(true));
+    this.failureTags = basicTags.and(TAG_RESULT, getResultTagValue(false));
+    this.counterFactory = name -> createCounter(name, basicTags);
+    this.successCounterFactory = name -> createCounter(name, successTags);
+    this.failureCounterFactory = name -> createCounter(name, failureTags);
+    this.timerFactory = name -> createTimer(name, basicTags);
+    this.successTimerFactory = name -> createTimer(name, successTags);
+    this.failureTimerFactory = name -> createTimer(name, failureTags);
+    this.percentileMeterFilter = new PercentileMeterFilter(parrotMetricsProperties.getPercentiles(),
+        Duration.ofSeconds(parrotMetricsProperties.getMetricsPushFrequencyInSeconds()));
+    meterRegistry.config()
+        .meterFilter(percentileMeterFilter)
+        .onMeterRemoved(this::onMeterRemoved);
+    if (recordingPipeline != null) {
+      recordingPipeline.bindTo(meterRegistry, basicTags);
+    }
   }
 
   @Override
   public Counter createOrGetCounter(String metricName, boolean isOperationSuccessful) {
-    Tags tags = createTags()
-        .and(TAG_RESULT, getResultTagValue(isOperationSuccessful));
-    return CounterImpl.builder()
-        .counter(meterRegistry.counter(metricName, tags))
-        .build();
+    if (isOperationSuccessful) {
+      return createOrGet(successCounters, metricName, successCounterFactory);
+    }
+    return createOrGet(failureCounters, metricName, failureCounterFactory);
   }
 
   @Override
   public Counter createOrGetCounter(String metricName) {
-    Tags tags = createTags();
-    return CounterImpl.builder()
-        .counter(meterRegistry.counter(metricName, tags))
-        .build();
+    return createOrGet(counters, metricName, counterFactory);
   }
 
   @Override
   public MetricsTimer createOrGetTimer(String metricName) {
+    return createOrGet(timers, metricName, timerFactory);
+  }
+
+  @Override
+  public MetricsTimer createOrGetTimer(String metricName, boolean isOperationSuccessful) {
+    if (isOperationSuccessful) {
+      return createOrGet(successTimers, metricName, successTimerFactory);
+    }
+    return createOrGet(failureTimers, metricName, failureTimerFactory);
+  }
+
+  @Override
+  public void publishPercentiles(String metricName, double... percentiles) {
+    percentileMeterFilter.enable(metricName, percentiles);
+  }
+
+  @Override
+  public void publishHighResolution(String metricName) {
+    if (meterRegistry instanceof ArthurCloudWatchMeterRegistry) {
+      ((ArthurCloudWatchMeterRegistry) meterRegistry).enableHighResolution(metricName);
+    }
+  }
+
+  @Override
+  public void publishWithStep(String metricName, Duration step) {
+    if (meterRegistry instanceof ArthurCloudWatchMeterRegistry) {
+      ((ArthurCloudWatchMeterRegistry) meterRegistry).publishWithStep(metricName, step);
+    }
+  }
+
+  @Override
+  public <T> void gauge(String metricName, T stateObject, ToDoubleFunction<T> valueFunction) {
+    Gauge.builder(metricName, stateObject, valueFunction)
+        .tags(basicTags)
+        .strongReference(true)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public <T> void functionCounter(String metricName, T stateObject, ToDoubleFunction<T> countFunction) {
+    FunctionCounter.builder(metricName, stateObject, countFunction)
+        .tags(basicTags)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Applies the pending asynchronous recordings and closes the meter registry, which publishes the step in progress and closes its publisher.
+   */
+  public void close() {
+    if (recordingPipeline != null) {
+      recordingPipeline.close();
+    }
+    meterRegistry.close();
+  }
+
+  private void onMeterRemoved(Meter meter) {
+    String metricName = meter.getId().getName();
+    for (ConcurrentMap<String, CounterImpl> cache : List.of(counters, successCounters, failureCounters)) {
+      CounterImpl counter = cache.get(metricName);
+      if (counter != null) {
+        counter.onMeterRemoved(meter);
+      }
+    }
+    for (ConcurrentMap<String, MetricsTimerImpl> cache : List.of(timers, successTimers, failureTimers)) {
+      MetricsTimerImpl timer = cache.get(metricName);
+      if (timer != null) {
+        timer.onMeterRemoved(meter);
+      }
+    }
+  }
+
+  private CounterImpl createCounter(String metricName, Tags tags) {
+    return CounterImpl.builder()
+        .meterRegistry(meterRegistry)
+        .metricName(metricName)
+        .tags(tags)
+        .recordingPipeline(recordingPipeline)
+        .build();
+  }
+
+  private MetricsTimerImpl createTimer(String metricName, Tags tags) {
     return MetricsTimerImpl.builder()
         .meterRegistry(meterRegistry)
         .metricName(metricName)
-        .basicTags(createTags())
+        .basicTags(tags)
+        .recordingPipeline(recordingPipeline)
         .build();
   }
-  
+
+  private static <T> T createOrGet(ConcurrentMap<String, T> cache, String metricName, Function<String, T> factory) {
+    // plain get() first, as computeIfAbsent() may lock the bin even when the key is already present
+    T handle = cache.get(metricName);
+    if (handle == null) {
+      handle = cache.computeIfAbsent(metricName, factory);
+    }
+    return handle;
+  }
+
   private Tags createTags() {
     Tags tags = Tags.of(TAG_APPLICATION_NAME, applicationName)
         .and(TAG_DEPLOYMENT_ENVIRONMENT, parrotMetricsProperties.getEnvironment().getEnvironment());
@@ -1,72 +1,146 @@
 package com.arthur.metrics.internal;
 
+import com.arthur.metrics.internal.async.AsyncRecordable;
+import com.arthur.metrics.internal.async.AsyncRecordingPipeline;
 import com.arthur.metrics.meters.MetricsTimer;
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 import lombok.Builder;
 
-@Builder
-public class MetricsTimerImpl implements MetricsTimer {
+public class MetricsTimerImpl implements MetricsTimer, AsyncRecordable {
 
   private final String metricName;
   private final MeterRegistry meterRegistry;
   private final Tags basicTags;
-  private TimerInProgress timerInProgress;
+  // null when recording synchronously
+  private final AsyncRecordingPipeline recordingPipeline;
+  // resolved on first use, so that a timer which only records with custom tags does not publish an empty series
+  private volatile Timer timer;
+
+  @Builder
+  private MetricsTimerImpl(String metricName, MeterRegistry meterRegistry, Tags basicTags, AsyncRecordingPipeline recordingPipeline) {
+    this.metricName = metricName;
+    this.meterRegistry = meterRegistry;
+    this.basicTags = basicTags;
+    this.recordingPipeline = recordingPipeline;
+  }
 
   @Override
   public TimerInProgress start() {
-    if (timerInProgress != null) {
-      throw new IllegalStateException("Timer sequence has already been started! Please stop it before start a new one.");
-    }
-    timerInProgress = new TimerInProgressImpl(this);
-    return timerInProgress;
+    return new TimerInProgressImpl(this);
+  }
+
+  @Override
+  public long startSample() {
+    return Clock.SYSTEM.monotonicTime();
+  }
+
+  @Override
+  public void stopSample(long startTimeInNanos) {
+    record(Clock.SYSTEM.monotonicTime() - startTimeInNanos);
+  }
+
+  @Override
+  public void stopSample(long startTimeInNanos, Tags tags) {
+    record(Clock.SYSTEM.monotonicTime() - startTimeInNanos, tags);
   }
 
   @Override
   public void duration(Duration duration) {
-    Timer timer = meterRegistry.timer(metricName, basicTags);
-    timer.record(duration);
-    timerInProgress = null;
+    record(duration.toNanos());
   }
 
   @Override
   public void duration(Duration duration, Tags tags) {
-    Timer timer = meterRegistry.timer(metricName, tags.and(basicTags));
-    timer.record(duration);
-    timerInProgress = null;
+    record(duration.toNanos(), tags);
   }
 
+  @Override
+  public void record(long durationInNanos) {
+    if (recordingPipeline != null) {
+      recordingPipeline.record(this, durationInNanos, null);
+    } else {
+      getTimer().record(durationInNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public void record(long durationInNanos, Tags tags) {
+    if (recordingPipeline != null) {
+      recordingPipeline.record(this, durationInNanos, tags);
+    } else {
+      applyRecording(durationInNanos, tags);
+    }
+  }
+
+  @Override
+  public void applyRecording(long durationInNanos, Tags tags) {
+    Timer resolved = tags == null ? getTimer() : meterRegistry.timer(metricName, tags.and(basicTags));
+    resolved.record(durationInNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private Timer getTimer() {
+    Timer resolved = timer;
+    if (resolved == null) {
+      // racing threads resolve the same meter from the registry, so there is no need to synchronize
+      resolved = meterRegistry.timer(metricName, basicTags);
+      timer = resolved;
+    }
+    return resolved;
+  }
+
+  /**
+   * Drops the resolved meter when it was removed from the registry (E.g. after being idle), so that the next sample registers it again.
+   */
+  void onMeterRemoved(Meter meter) {
+    if (timer == meter) {
+      timer = null;
+    }
+  }
+
+  /**
+   * A single sample, which is expected to be stopped by the thread that started it.
+   */
   public static class TimerInProgressImpl implements TimerInProgress {
 
     private final MetricsTimerImpl metricsTimer;
-    private Long startTimeInNanos;
+    private final long startTimeInNanos;
+    private boolean stopped;
 
     private TimerInProgressImpl(MetricsTimerImpl metricsTimer) {
-      this.startTimeInNanos = Clock.SYSTEM.monotonicTime();
+      this.startTimeInNanos = metricsTimer.startSample();
       this.metricsTimer = metricsTimer;
     }
 
     @Override
     public void stop() {
-      if (startTimeInNanos == null) {
-        throw new IllegalStateException("Timer sequence has already been stopped! Please start a new timer sequence.");
-      }
-      long durationInNanos = Clock.SYSTEM.monotonicTime() - startTimeInNanos;
-      startTimeInNanos = null;
-      metricsTimer.duration(Duration.ofNanos(durationInNanos));
+      markStopped();
+      metricsTimer.stopSample(startTimeInNanos);
     }
 
     @Override
     public void stop(Tags tags) {
-      if (startTimeInNanos == null) {
+      markStopped();
+      metricsTimer.stopSample(startTimeInNanos, tags);
+    }
+
+    @Override
+    public void close() {
+      if (!stopped) {
+        stop();
+      }
+    }
+
+    private void markStopped() {
+      if (stopped) {
         throw new IllegalStateException("Timer sequence has already been stopped! Please start a new timer sequence.");
       }
-      long durationInNanos = Clock.SYSTEM.monotonicTime() - startTimeInNanos;
-      startTimeInNanos = null;
-      metricsTimer.duration(Duration.ofNanos(durationInNanos), tags);
+      stopped = true;
     }
   }
 }
@@ -1,9 +1,13 @@
 package com.arthur.metrics.internal.aop;
 
 import com.arthur.metrics.annotations.Count;
+import com.arthur.metrics.meters.Counter;
 import com.arthur.metrics.service.Metrics;
 import java.lang.reflect.Method;
+import java.time.Duration;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import lombok.extern.log4j.Log4j2;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -15,6 +19,8 @@ import org.aspectj.lang.reflect.MethodSignature;
 public class CountMetricAspect {
 
   private final Metrics metricsService;
+  // everything that can be derived from the method is resolved once, so an invocation costs a map read plus the recording itself
+  private final ConcurrentMap<Method, CountedMethod> countedMethods = new ConcurrentHashMap<>();
 
   public CountMetricAspect(Metrics metricsService) {
     this.metricsService = metricsService;
@@ -23,45 +29,63 @@ public class CountMetricAspect {
 
   @Around("@annotation(count)")
   public Object interceptAndRecordInvocationCountMetric(ProceedingJoinPoint joinPoint, Count count) throws Throwable {
-    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
-    boolean stopWhenCompleted = CompletionStage.class.isAssignableFrom(method.getReturnType()); // E.g. Futures
-    if (stopWhenCompleted) {
+    final CountedMethod countedMethod = getCountedMethod(((MethodSignature) joinPoint.getSignature()).getMethod(), count);
+    if (countedMethod.stopWhenCompleted) {
       try {
         return ((CompletionStage) joinPoint.proceed()).whenComplete((resultx, throwable) -> {
           if (throwable != null) {
-            recordCount(count, throwable == null);
+            countedMethod.recordCount(false);
           }
         });
       } catch (Throwable t) {
-        recordCount(count, false);
+        countedMethod.recordCount(false);
         throw t;
       }
     } else {
       try {
         Object result = joinPoint.proceed();
-        recordCount(count, true);
+        countedMethod.recordCount(true);
         return result;
       } catch (Throwable t) {
-        recordCount(count, false);
+        countedMethod.recordCount(false);
         throw t;
       }
     }
   }
 
-  private void recordCount(Count count, boolean isSuccessful) {
-    if (isCaptureRecord(count, isSuccessful)) {
-      metricsService.createOrGetCounter(count.name(), isSuccessful).increment();
+  private CountedMethod getCountedMethod(Method method, Count count) {
+    CountedMethod countedMethod = countedMethods.get(method);
+    if (countedMethod == null) {
+      countedMethod = countedMethods.computeIfAbsent(method, m -> new CountedMethod(metricsService, m, count));
     }
+    return countedMethod;
   }
 
-  private boolean isCaptureRecord(Count count, boolean isSuccessful) {
-    return isCaptureOnlyOnFailureAndRequestFailed(count, isSuccessful)
-        || canCaptureAnyRequest(count);
-  }
-  private boolean canCaptureAnyRequest(Count count) {
-    return !count.captureOnFailureOnly();
-  }
-  private boolean isCaptureOnlyOnFailureAndRequestFailed(Count count, boolean isSuccessful) {
-    return count.captureOnFailureOnly() && !isSuccessful;
+  /**
+   * Precomputed details of a method annotated with {@link Count}.
+   */
+  private static final class CountedMethod {
+
+    // E.g. Futures
+    private final boolean stopWhenCompleted;
+    // null when only failures should be captured, see Count#captureOnFailureOnly()
+    private final Counter successCounter;
+    private final Counter failureCounter;
+
+    private CountedMethod(Metrics metricsService, Method method, Count count) {
+      this.stopWhenCompleted = CompletionStage.class.isAssignableFrom(method.getReturnType());
+      if (count.stepInSeconds() > 0) {
+        metricsService.publishWithStep(count.name(), Duration.ofSeconds(count.stepInSeconds()));
+      }
+      this.successCounter = count.captureOnFailureOnly() ? null : metricsService.createOrGetCounter(count.name(), true);
+      this.failureCounter = metricsService.createOrGetCounter(count.name(), false);
+    }
+
+    private void recordCount(boolean isSuccessful) {
+      Counter counter = isSuccessful ? successCounter : failureCounter;
+      if (counter != null) {
+        counter.increment();
+      }
+    }
   }
 }
@@ -1,14 +1,13 @@
 package com.arthur.metrics.internal.aop;
 
-import static com.arthur.metrics.internal.MetricsServiceImpl.TAG_RESULT;
-import static com.arthur.metrics.internal.MetricsServiceImpl.getResultTagValue;
-
 import com.arthur.metrics.annotations.Timer;
-import com.arthur.metrics.meters.MetricsTimer.TimerInProgress;
+import com.arthur.metrics.meters.MetricsTimer;
 import com.arthur.metrics.service.Metrics;
-import io.micrometer.core.instrument.Tags;
 import java.lang.reflect.Method;
+import java.time.Duration;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import lombok.extern.log4j.Log4j2;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -20,6 +19,8 @@ import org.aspectj.lang.reflect.MethodSignature;
 public class TimerMetricAspect {
 
   private final Metrics metricsService;
+  // everything that can be derived from the method is resolved once, so an invocation costs a map read plus the recording itself
+  private final ConcurrentMap<Method, TimedMethod> timedMethods = new ConcurrentHashMap<>();
 
   public TimerMetricAspect(Metrics metricsService) {
     this.metricsService = metricsService;
@@ -28,32 +29,68 @@ public class TimerMetricAspect {
 
   @Around("@annotation(timer)")
   public Object interceptAndRecordInvocationTimerMetric(ProceedingJoinPoint joinPoint, Timer timer) throws Throwable {
-    final TimerInProgress timerMetric = metricsService.createOrGetTimer(timer.name()).start();
-    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
-    boolean stopWhenCompleted = CompletionStage.class.isAssignableFrom(method.getReturnType());
-    if (stopWhenCompleted) {
+    final TimedMethod timedMethod = getTimedMethod(((MethodSignature) joinPoint.getSignature()).getMethod(), timer);
+    final long startTimeInNanos = timedMethod.startSample();
+    if (timedMethod.stopWhenCompleted) {
       try {
         return ((CompletionStage) joinPoint.proceed()).whenComplete((resultx, throwable) -> {
-          stopTimer(timerMetric, throwable == null);
+          timedMethod.stopSample(startTimeInNanos, throwable == null);
         });
       } catch (Throwable t) {
-        stopTimer(timerMetric, false);
+        timedMethod.stopSample(startTimeInNanos, false);
         throw t;
       }
     } else {
       try {
         Object result = joinPoint.proceed();
-        stopTimer(timerMetric, true);
+        timedMethod.stopSample(startTimeInNanos, true);
         return result;
       } catch (Throwable t) {
-        stopTimer(timerMetric, false);
+        timedMethod.stopSample(startTimeInNanos, false);
         throw t;
       }
     }
   }
 
-  private void stopTimer(TimerInProgress timer, boolean isSuccess) {
-    Tags tags = Tags.of(TAG_RESULT, getResultTagValue(isSuccess));
-    timer.stop(tags);
+  private TimedMethod getTimedMethod(Method method, Timer timer) {
+    TimedMethod timedMethod = timedMethods.get(method);
+    if (timedMethod == null) {
+      timedMethod = timedMethods.computeIfAbsent(method, m -> new TimedMethod(metricsService, m, timer));
+    }
+    return timedMethod;
+  }
+
+  /**
+   * Precomputed details of a method annotated with {@link Timer}.
+   */
+  private static final class TimedMethod {
+
+    // E.g. Futures
+    private final boolean stopWhenCompleted;
+    private final MetricsTimer successTimer;
+    private final MetricsTimer failureTimer;
+
+    private TimedMethod(Metrics metricsService, Method method, Timer timer) {
+      this.stopWhenCompleted = CompletionStage.class.isAssignableFrom(method.getReturnType());
+      if (timer.percentiles().length > 0) {
+        metricsService.publishPercentiles(timer.name(), timer.percentiles());
+      }
+      if (timer.highResolution()) {
+        metricsService.publishHighResolution(timer.name());
+      }
+      if (timer.stepInSeconds() > 0) {
+        metricsService.publishWithStep(timer.name(), Duration.ofSeconds(timer.stepInSeconds()));
+      }
+      this.successTimer = metricsService.createOrGetTimer(timer.name(), true);
+      this.failureTimer = metricsService.createOrGetTimer(timer.name(), false);
+    }
+
+    private long startSample() {
+      return successTimer.startSample();
+    }
+
+    private void stopSample(long startTimeInNanos, boolean isSuccess) {
+      (isSuccess ? successTimer : failureTimer).stopSample(startTimeInNanos);
+    }
   }
 }
@@ -0,0 +1,17 @@
+package com.arthur.metrics.internal.async;
+
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * A handle whose recordings can be deferred to the {@link AsyncRecordingPipeline}.
+ */
+public interface AsyncRecordable {
+
+  /**
+   * Applies a recording to the underlying meter. Invoked by the consumer thread of the pipeline.
+   *
+   * @param value E.g. the amount of a counter increment or the duration of a timer sample in nanoseconds
+   * @param tags  additional tags of the recording, can be <code>null</code>
+   */
+  void applyRecording(long value, Tags tags);
+}
@@ -0,0 +1,119 @@
+package com.arthur.metrics.internal.async;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.AsyncRecordingConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.OverflowPolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.util.NamedThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Moves recordings off the calling threads: callers only claim a slot of a {@link RecordingRingBuffer}, while a single consumer thread resolves the
+ * meters and applies the recordings. Recordings are therefore visible in the registry with a short delay.
+ * <p>
+ * When the buffer is full, recordings are either dropped (and counted as {@value #DROPPED_METRIC_NAME}) or the caller waits for a free slot, see
+ * {@link OverflowPolicy}.
+ */
+@Log4j2
+public class AsyncRecordingPipeline implements AutoCloseable {
+
+  public static final String DROPPED_METRIC_NAME = "metrics.recordings.dropped";
+
+  private static final int DRAIN_BATCH_SIZE = 1024;
+  // an empty buffer is polled busily at first, then with a growing interval so that an idle application costs (almost) no CPU
+  private static final int IDLE_SPINS = 100;
+  private static final int IDLE_YIELDS = 100;
+  private static final long MIN_IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+  private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+  private final RecordingRingBuffer ringBuffer;
+  private final OverflowPolicy overflowPolicy;
+  private final LongAdder dropped = new LongAdder();
+  private final Thread consumer;
+  private volatile boolean running = true;
+
+  public AsyncRecordingPipeline(AsyncRecordingConfig asyncRecordingConfig) {
+    this.ringBuffer = new RecordingRingBuffer(asyncRecordingConfig.getBufferSize());
+    this.overflowPolicy = asyncRecordingConfig.getOverflowPolicy();
+    this.consumer = new NamedThreadFactory("metrics-recorder").newThread(this::consume);
+    consumer.start();
+    log.info("Started asynchronous recording with a buffer of {} recordings", ringBuffer.capacity());
+  }
+
+  /**
+   * Registers the number of dropped recordings with the given registry.
+   */
+  public void bindTo(MeterRegistry meterRegistry, Tags tags) {
+    FunctionCounter.builder(DROPPED_METRIC_NAME, dropped, LongAdder::sum)
+        .tags(tags)
+        .description("Number of recordings dropped because the asynchronous recording buffer was full")
+        .register(meterRegistry);
+  }
+
+  public void record(AsyncRecordable target, long value, Tags tags) {
+    if (ringBuffer.offer(target, value, tags)) {
+      return;
+    }
+    if (overflowPolicy == OverflowPolicy.DROP || !running) {
+      dropped.increment();
+      return;
+    }
+    while (!ringBuffer.offer(target, value, tags)) {
+      if (!running) {
+        dropped.increment();
+        return;
+      }
+      LockSupport.parkNanos(FULL_PARK_NANOS);
+    }
+  }
+
+  private void consume() {
+    int idleRounds = 0;
+    long parkNanos = MIN_IDLE_PARK_NANOS;
+    while (running) {
+      if (drainSafely() > 0) {
+        idleRounds = 0;
+        parkNanos = MIN_IDLE_PARK_NANOS;
+      } else if (idleRounds < IDLE_SPINS) {
+        idleRounds++;
+        Thread.onSpinWait();
+      } else if (idleRounds < IDLE_SPINS + IDLE_YIELDS) {
+        idleRounds++;
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(parkNanos);
+        parkNanos = Math.min(parkNanos * 2, MAX_IDLE_PARK_NANOS);
+      }
+    }
+    // recordings published before close() was invoked
+    int drained;
+    do {
+      drained = drainSafely();
+    } while (drained > 0);
+  }
+
+  private int drainSafely() {
+    try {
+      return ringBuffer.drain(DRAIN_BATCH_SIZE);
+    } catch (RuntimeException e) {
+      log.warn("Failed to apply a recording", e);
+      return 1;
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(consumer);
+    try {
+      consumer.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
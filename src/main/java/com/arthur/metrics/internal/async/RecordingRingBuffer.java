@@ -0,0 +1,101 @@
+package com.arthur.metrics.internal.async;
+
+import io.micrometer.core.instrument.Tags;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free multi-producer single-consumer ring buffer of recordings. Every slot carries a sequence number, which tells producers whether the
+ * slot is free and the consumer whether it has been published, so neither side needs a lock.
+ */
+final class RecordingRingBuffer {
+
+  static final int MAX_CAPACITY = 1 << 30;
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicLongArray sequences;
+  private final AsyncRecordable[] targets;
+  private final long[] values;
+  private final Tags[] tags;
+  private final AtomicLong tail = new AtomicLong();
+  // only accessed by the consumer thread
+  private long head;
+
+  RecordingRingBuffer(int minCapacity) {
+    if (minCapacity <= 0 || minCapacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("Capacity of the ring buffer must be between 1 and " + MAX_CAPACITY + ", but was " + minCapacity);
+    }
+    int powerOfTwo = 1;
+    while (powerOfTwo < minCapacity) {
+      powerOfTwo <<= 1;
+    }
+    this.capacity = powerOfTwo;
+    this.mask = capacity - 1;
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+    this.targets = new AsyncRecordable[capacity];
+    this.values = new long[capacity];
+    this.tags = new Tags[capacity];
+  }
+
+  /**
+   * @return <code>false</code> if the buffer is full
+   */
+  boolean offer(AsyncRecordable target, long value, Tags recordingTags) {
+    long position = tail.get();
+    while (true) {
+      int index = (int) (position & mask);
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          targets[index] = target;
+          values[index] = value;
+          tags[index] = recordingTags;
+          // publishes the plain writes above to the consumer
+          sequences.lazySet(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        // the slot still holds a recording of the previous lap
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Applies up to <code>maxRecordings</code> published recordings in the order they were claimed. Must only be invoked by the consumer thread. A
+   * failing recording is propagated after its slot was freed, so the remaining recordings are applied by the next invocation.
+   *
+   * @return number of applied recordings
+   */
+  int drain(int maxRecordings) {
+    int drained = 0;
+    while (drained < maxRecordings) {
+      int index = (int) (head & mask);
+      if (sequences.get(index) != head + 1) {
+        break;
+      }
+      AsyncRecordable target = targets[index];
+      long value = values[index];
+      Tags recordingTags = tags[index];
+      targets[index] = null;
+      tags[index] = null;
+      // frees the slot for the producers of the next lap
+      sequences.lazySet(index, head + capacity);
+      head++;
+      drained++;
+      target.applyRecording(value, recordingTags);
+    }
+    return drained;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+}
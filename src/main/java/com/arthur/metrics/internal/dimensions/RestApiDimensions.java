@@ -35,11 +35,18 @@ public class RestApiDimensions {
   private String requestURI;
   private boolean operationSuccessful;
 
-  public Tags getTags() {
+  /**
+   * Tags with a bounded number of values, which are recorded for every request even when the other dimensions are sampled.
+   */
+  public Tags getLowCardinalityTags() {
     return Tags.of(TAG_REQUEST_URI, requestURI)
         .and(TAG_HTTP_STATUS, String.valueOf(httpStatus))
         .and(TAG_RESULT, getResultTagValue(operationSuccessful))
-        .and(TAG_HTTP_METHOD, httpMethod)
+        .and(TAG_HTTP_METHOD, httpMethod);
+  }
+
+  public Tags getTags() {
+    return getLowCardinalityTags()
         .and(TAG_USER_ID, Optional.ofNullable(userId).orElse(UNKNOWN))
         .and(TAG_ACCOUNT_ID, Optional.ofNullable(accountId).orElse(UNKNOWN))
         .and(TAG_ACCOUNT_NAME, Optional.ofNullable(accountName).orElse(NOT_APPLICABLE))
@@ -0,0 +1,24 @@
+package com.arthur.metrics.internal.filter;
+
+import com.google.gson.annotations.SerializedName;
+import java.io.Serializable;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+class JwtClaims implements Serializable {
+
+  @SerializedName(value = "internal_user_id")
+  private Long userId;
+
+  @SerializedName(value = "internal_account_id")
+  private Long accountId;
+
+  @SerializedName(value = "internal_account_name")
+  private String accountName;
+
+  // seconds since the epoch
+  @SerializedName(value = "exp")
+  private Long expiration;
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.arthur.metrics.internal.filter;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.JwtCacheConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.JwtParserType;
+import com.arthur.metrics.config.ArthurMetricsProperties.RestApiConfig;
+import com.arthur.metrics.internal.BoundedCache;
+import io.micrometer.core.instrument.Clock;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Caches the claims extracted from bearer tokens, as clients tend to reuse the same token for many requests. An entry expires after the configured
+ * time to live or when the token itself expires, whichever comes first, so an expired token is parsed (and rejected) again.
+ */
+public class JwtClaimsCache {
+
+  private final JwtClaimsParser jwtClaimsParser;
+  private final BoundedCache<String, CachedClaims> claimsByToken;
+  private final long ttlInMillis;
+  private final Clock clock;
+
+  public JwtClaimsCache(RestApiConfig restApiConfig) {
+    this(restApiConfig.getJwtCache(), createParser(restApiConfig.getJwtParser()), Clock.SYSTEM);
+  }
+
+  JwtClaimsCache(JwtCacheConfig jwtCacheConfig, JwtClaimsParser jwtClaimsParser, Clock clock) {
+    this.jwtClaimsParser = jwtClaimsParser;
+    this.claimsByToken = jwtCacheConfig.isEnabled() ? new BoundedCache<>(jwtCacheConfig.getMaxSize()) : null;
+    this.ttlInMillis = TimeUnit.SECONDS.toMillis(jwtCacheConfig.getTtlInSeconds());
+    this.clock = clock;
+  }
+
+  JwtClaims getClaims(HttpServletRequest request) throws InvalidJwtException {
+    String jwtToken = JwtTokenUtility.getJwtToken(request);
+    if (claimsByToken == null) {
+      return jwtClaimsParser.parse(jwtToken);
+    }
+    long now = clock.wallTime();
+    CachedClaims cachedClaims = claimsByToken.get(jwtToken);
+    if (cachedClaims != null) {
+      if (now < cachedClaims.expiresAtInMillis) {
+        return cachedClaims.claims;
+      }
+      claimsByToken.remove(jwtToken);
+    }
+    JwtClaims claims = jwtClaimsParser.parse(jwtToken);
+    claimsByToken.put(jwtToken, new CachedClaims(claims, expiresAt(claims, now)));
+    return claims;
+  }
+
+  private static JwtClaimsParser createParser(JwtParserType jwtParserType) {
+    return jwtParserType == JwtParserType.STREAMING ? new StreamingJwtClaimsParser() : JwtTokenUtility::getClaimsFromJwtToken;
+  }
+
+  private long expiresAt(JwtClaims claims, long now) {
+    long expiresAtInMillis = now + ttlInMillis;
+    if (claims.getExpiration() != null) {
+      expiresAtInMillis = Math.min(expiresAtInMillis, TimeUnit.SECONDS.toMillis(claims.getExpiration()));
+    }
+    return expiresAtInMillis;
+  }
+
+  private static final class CachedClaims {
+
+    private final JwtClaims claims;
+    private final long expiresAtInMillis;
+
+    private CachedClaims(JwtClaims claims, long expiresAtInMillis) {
+      this.claims = claims;
+      this.expiresAtInMillis = expiresAtInMillis;
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package com.arthur.metrics.internal.filter;
+
+/**
+ * Extracts the {@link JwtClaims} used as REST API dimensions from a JWT token (without the <code>Bearer </code> prefix).
+ */
+@FunctionalInterface
+interface JwtClaimsParser {
+
+  JwtClaims parse(String jwtToken) throws InvalidJwtException;
+}
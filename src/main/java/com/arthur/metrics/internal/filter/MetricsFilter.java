@@ -1,9 +1,11 @@
 package com.arthur.metrics.internal.filter;
 
 import com.arthur.metrics.internal.dimensions.RestApiDimensions;
+import com.arthur.metrics.internal.monitoring.SelfMetrics;
+import com.arthur.metrics.meters.Counter;
 import com.arthur.metrics.meters.MetricsTimer;
-import com.arthur.metrics.meters.MetricsTimer.TimerInProgress;
 import com.arthur.metrics.service.Metrics;
+import io.micrometer.core.instrument.Clock;
 import java.io.IOException;
 import java.util.Optional;
 import javax.servlet.FilterChain;
@@ -17,34 +19,121 @@ import lombok.extern.log4j.Log4j2;
 public class MetricsFilter extends HttpFilter {
 
   protected static final String METRIC_NAME_DURATION = "restapi.duration";
+  protected static final String METRIC_NAME_SAMPLED_DURATION = "restapi.duration.sampled";
+  protected static final String METRIC_NAME_REQUESTS = "restapi.requests";
+  protected static final String METRIC_NAME_SAMPLED_REQUESTS = "restapi.requests.sampled";
   protected static final String IP_ADDRESS = "X-FORWARDED-FOR";
   protected static final String ISO_COUNTRY_CODE = "x-country-code";
 
   private final Metrics metricsService;
+  private final RequestUriNormalizer requestUriNormalizer;
+  private final JwtClaimsCache jwtClaimsCache;
+  // null when every request is recorded with all dimensions
+  private final RequestSampler requestSampler;
+  // step counters rather than a polled rate, so that any number of readers get the same values
+  private final Counter requestCounter;
+  private final Counter sampledRequestCounter;
+  // null when the library does not measure itself
+  private final SelfMetrics selfMetrics;
 
-  public MetricsFilter(Metrics metricsService) {
+  public MetricsFilter(Metrics metricsService, RequestUriNormalizer requestUriNormalizer, JwtClaimsCache jwtClaimsCache) {
+    this(metricsService, requestUriNormalizer, jwtClaimsCache, null);
+  }
+
+  public MetricsFilter(Metrics metricsService, RequestUriNormalizer requestUriNormalizer, JwtClaimsCache jwtClaimsCache, RequestSampler requestSampler) {
+    this(metricsService, requestUriNormalizer, jwtClaimsCache, requestSampler, null);
+  }
+
+  public MetricsFilter(Metrics metricsService, RequestUriNormalizer requestUriNormalizer, JwtClaimsCache jwtClaimsCache, RequestSampler requestSampler,
+      SelfMetrics selfMetrics) {
     this.metricsService = metricsService;
+    this.requestUriNormalizer = requestUriNormalizer;
+    this.jwtClaimsCache = jwtClaimsCache;
+    this.requestSampler = requestSampler;
+    this.selfMetrics = selfMetrics;
+    this.requestCounter = requestSampler != null ? metricsService.createOrGetCounter(METRIC_NAME_REQUESTS) : null;
+    this.sampledRequestCounter = requestSampler != null ? metricsService.createOrGetCounter(METRIC_NAME_SAMPLED_REQUESTS) : null;
   }
 
   @Override
   public void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+    if (requestSampler != null) {
+      doFilterSampled(request, response, chain);
+      return;
+    }
+    final long filterStartTimeInNanos = selfMetrics != null ? Clock.SYSTEM.monotonicTime() : 0;
     RestApiDimensions restApiDimensions = new RestApiDimensions();
     enrichDimensionsByRequest(request, restApiDimensions);
     final MetricsTimer metricsTimer = metricsService.createOrGetTimer(METRIC_NAME_DURATION);
-    TimerInProgress timerInProgress = metricsTimer.start();
+    final long startTimeInNanos = metricsTimer.startSample();
+    long chainEndTimeInNanos = 0;
     try {
       chain.doFilter(request, response);
+      chainEndTimeInNanos = Clock.SYSTEM.monotonicTime();
       enrichDimensionsByResponse(restApiDimensions, response, true);
     } catch (Exception e) {
+      chainEndTimeInNanos = Clock.SYSTEM.monotonicTime();
       enrichDimensionsByResponse(restApiDimensions, response, false);
       throw e;
     } finally {
-      timerInProgress.stop(restApiDimensions.getTags());
+      // resolved after dispatching, as the route pattern of the handler is only known by then
+      restApiDimensions.setRequestURI(requestUriNormalizer.normalize(request));
+      metricsTimer.stopSample(startTimeInNanos, restApiDimensions.getTags());
+      recordOverhead(filterStartTimeInNanos, startTimeInNanos, chainEndTimeInNanos);
+    }
+  }
+
+  /**
+   * Records every request with the low cardinality tags only. The high cardinality dimensions (E.g. the user, which requires parsing the JWT token)
+   * are only resolved and recorded for sampled requests.
+   */
+  private void doFilterSampled(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+    final long filterStartTimeInNanos = selfMetrics != null ? Clock.SYSTEM.monotonicTime() : 0;
+    final boolean sampled = requestSampler.shouldSample();
+    requestCounter.increment();
+    if (sampled) {
+      sampledRequestCounter.increment();
+    }
+    RestApiDimensions restApiDimensions = new RestApiDimensions();
+    if (sampled) {
+      enrichDimensionsByRequest(request, restApiDimensions);
+    } else {
+      restApiDimensions.setHttpMethod(request.getMethod());
+    }
+    // same clock as MetricsTimer#startSample()
+    final long startTimeInNanos = Clock.SYSTEM.monotonicTime();
+    long chainEndTimeInNanos = 0;
+    try {
+      chain.doFilter(request, response);
+      chainEndTimeInNanos = Clock.SYSTEM.monotonicTime();
+      enrichDimensionsByResponse(restApiDimensions, response, true);
+    } catch (Exception e) {
+      chainEndTimeInNanos = Clock.SYSTEM.monotonicTime();
+      enrichDimensionsByResponse(restApiDimensions, response, false);
+      throw e;
+    } finally {
+      long durationInNanos = Clock.SYSTEM.monotonicTime() - startTimeInNanos;
+      restApiDimensions.setRequestURI(requestUriNormalizer.normalize(request));
+      metricsService.createOrGetTimer(METRIC_NAME_DURATION).record(durationInNanos, restApiDimensions.getLowCardinalityTags());
+      if (sampled) {
+        metricsService.createOrGetTimer(METRIC_NAME_SAMPLED_DURATION).record(durationInNanos, restApiDimensions.getTags());
+      }
+      recordOverhead(filterStartTimeInNanos, startTimeInNanos, chainEndTimeInNanos);
+    }
+  }
+
+  /**
+   * Records the time spent in this filter, which is the time of the whole request without the time spent down the filter chain.
+   */
+  private void recordOverhead(long filterStartTimeInNanos, long chainStartTimeInNanos, long chainEndTimeInNanos) {
+    // the chain did not complete if it threw an error
+    if (selfMetrics != null && chainEndTimeInNanos != 0) {
+      long overheadInNanos = (Clock.SYSTEM.monotonicTime() - filterStartTimeInNanos) - (chainEndTimeInNanos - chainStartTimeInNanos);
+      selfMetrics.recordFilterOverhead(overheadInNanos);
     }
   }
 
   private void enrichDimensionsByRequest(HttpServletRequest request, RestApiDimensions restApiDimensions) {
-    restApiDimensions.setRequestURI(request.getRequestURI());
     restApiDimensions.setHttpMethod(request.getMethod());
     enrichDimensionsWithUserAndAccount(request, restApiDimensions);
     getFromRequestHeader(request, IP_ADDRESS).ifPresent(restApiDimensions::setIpAddress);
@@ -53,7 +142,7 @@ public class MetricsFilter extends HttpFilter {
 
   private void enrichDimensionsWithUserAndAccount(HttpServletRequest request, RestApiDimensions restApiDimensions) {
     try {
-      final JwtClaims jwtClaims = JwtTokenUtility.getClaimsFromJwtToken(request);
+      final JwtClaims jwtClaims = jwtClaimsCache.getClaims(request);
       restApiDimensions.setAccountId(Optional.ofNullable(jwtClaims.getAccountId()).map(id -> id.toString()).orElse(null));
       restApiDimensions.setAccountName(jwtClaims.getAccountName());
       restApiDimensions.setUserId(Optional.ofNullable(jwtClaims.getUserId()).map(id -> id.toString()).orElse(null));
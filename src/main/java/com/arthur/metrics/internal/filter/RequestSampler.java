@@ -0,0 +1,56 @@
+package com.arthur.metrics.internal.filter;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.SamplingConfig;
+import io.micrometer.core.instrument.Clock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which requests are recorded with all of their (high cardinality) dimensions: on average one in {@link SamplingConfig#getSampleEvery()}
+ * requests, optionally capped at {@link SamplingConfig#getMaxSamplesPerSecond()}.
+ */
+public class RequestSampler {
+
+  private final int sampleEvery;
+  private final int maxSamplesPerSecond;
+  private final Clock clock;
+  // guarded by this
+  private long currentSecond = Long.MIN_VALUE;
+  private int samplesInCurrentSecond;
+
+  public RequestSampler(SamplingConfig samplingConfig) {
+    this(samplingConfig, Clock.SYSTEM);
+  }
+
+  RequestSampler(SamplingConfig samplingConfig, Clock clock) {
+    if (samplingConfig.getSampleEvery() <= 0) {
+      throw new IllegalArgumentException("sampleEvery must be greater than 0, but was " + samplingConfig.getSampleEvery());
+    }
+    this.sampleEvery = samplingConfig.getSampleEvery();
+    this.maxSamplesPerSecond = samplingConfig.getMaxSamplesPerSecond();
+    this.clock = clock;
+  }
+
+  public boolean shouldSample() {
+    // random instead of every n-th request, so there is no shared sequence to contend on
+    return (sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0) && tryAcquire();
+  }
+
+  private boolean tryAcquire() {
+    if (maxSamplesPerSecond <= 0) {
+      return true;
+    }
+    long second = TimeUnit.NANOSECONDS.toSeconds(clock.monotonicTime());
+    synchronized (this) {
+      if (second != currentSecond) {
+        currentSecond = second;
+        samplesInCurrentSecond = 0;
+      }
+      if (samplesInCurrentSecond >= maxSamplesPerSecond) {
+        return false;
+      }
+      samplesInCurrentSecond++;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.arthur.metrics.internal.filter;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.RestApiConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.UriTemplateConfig;
+import com.arthur.metrics.internal.BoundedCache;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Resolves the value of the <code>Request URI</code> tag, so that path variables (E.g. <code>/titles/12345</code>) do not produce a new time series per
+ * value:
+ * <ol>
+ *   <li>the best matching Spring MVC route pattern (E.g. <code>/titles/{titleId}</code>) of the handler that served the request</li>
+ *   <li>otherwise, the first configured {@link UriTemplateConfig} that matches the raw request URI</li>
+ *   <li>otherwise, the raw request URI with identifier-like path segments replaced by <code>{id}</code> (if enabled)</li>
+ * </ol>
+ * Results of the last two steps are cached per raw request URI.
+ */
+public class RequestUriNormalizer {
+
+  static final String ID_SEGMENT = "{id}";
+  // value of HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, which is not a compile-time constant and would require Spring MVC at runtime
+  static final String BEST_MATCHING_PATTERN_ATTRIBUTE = "org.springframework.web.servlet.HandlerMapping.bestMatchingPattern";
+  private static final int MIN_HEX_ID_LENGTH = 16;
+
+  private final List<CompiledUriTemplate> uriTemplates;
+  private final boolean normalizeIdSegments;
+  private final BoundedCache<String, String> normalizedUris;
+
+  public RequestUriNormalizer(RestApiConfig restApiConfig) {
+    this.uriTemplates = restApiConfig.getUriTemplates().stream()
+        .map(CompiledUriTemplate::new)
+        .collect(Collectors.toList());
+    this.normalizeIdSegments = restApiConfig.isNormalizeIdSegments();
+    this.normalizedUris = new BoundedCache<>(restApiConfig.getUriCacheMaxSize());
+  }
+
+  /**
+   * Should only be invoked after the request was dispatched, as the route pattern is populated by the handler mapping.
+   */
+  public String normalize(HttpServletRequest request) {
+    Object routePattern = request.getAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE);
+    if (routePattern instanceof String) {
+      return (String) routePattern;
+    }
+    return normalize(request.getRequestURI());
+  }
+
+  public String normalize(String requestUri) {
+    if (requestUri == null) {
+      return null;
+    }
+    String normalizedUri = normalizedUris.get(requestUri);
+    if (normalizedUri == null) {
+      normalizedUri = applyTemplates(requestUri);
+      normalizedUris.put(requestUri, normalizedUri);
+    }
+    return normalizedUri;
+  }
+
+  private String applyTemplates(String requestUri) {
+    for (CompiledUriTemplate uriTemplate : uriTemplates) {
+      Matcher matcher = uriTemplate.pattern.matcher(requestUri);
+      if (matcher.matches()) {
+        return matcher.replaceFirst(uriTemplate.template);
+      }
+    }
+    return normalizeIdSegments ? replaceIdSegments(requestUri) : requestUri;
+  }
+
+  private static String replaceIdSegments(String requestUri) {
+    StringBuilder normalizedUri = new StringBuilder(requestUri.length());
+    int segmentStart = 0;
+    while (segmentStart <= requestUri.length()) {
+      int segmentEnd = requestUri.indexOf('/', segmentStart);
+      if (segmentEnd < 0) {
+        segmentEnd = requestUri.length();
+      }
+      if (isIdSegment(requestUri, segmentStart, segmentEnd)) {
+        normalizedUri.append(ID_SEGMENT);
+      } else {
+        normalizedUri.append(requestUri, segmentStart, segmentEnd);
+      }
+      if (segmentEnd < requestUri.length()) {
+        normalizedUri.append('/');
+      }
+      segmentStart = segmentEnd + 1;
+    }
+    return normalizedUri.toString();
+  }
+
+  private static boolean isIdSegment(String uri, int start, int end) {
+    if (start >= end) {
+      return false;
+    }
+    boolean allDigits = true;
+    boolean allHexOrDash = true;
+    int dashes = 0;
+    for (int i = start; i < end; i++) {
+      char c = uri.charAt(i);
+      if (c == '-') {
+        dashes++;
+        allDigits = false;
+      } else if (c < '0' || c > '9') {
+        allDigits = false;
+        if (!((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+          allHexOrDash = false;
+        }
+      }
+    }
+    int length = end - start;
+    boolean isUuid = allHexOrDash && dashes == 4 && length == 36;
+    boolean isHexId = allHexOrDash && dashes == 0 && length >= MIN_HEX_ID_LENGTH;
+    return allDigits || isUuid || isHexId;
+  }
+
+  private static final class CompiledUriTemplate {
+
+    private final Pattern pattern;
+    private final String template;
+
+    private CompiledUriTemplate(UriTemplateConfig uriTemplateConfig) {
+      this.pattern = Pattern.compile(uriTemplateConfig.getPattern());
+      this.template = uriTemplateConfig.getTemplate();
+    }
+  }
+}
@@ -0,0 +1,335 @@
+package com.arthur.metrics.internal.filter;
+
+import io.micrometer.core.instrument.Clock;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts the {@link JwtClaims} in a single pass over the token: only the payload segment is base64url decoded (into a buffer that is reused per
+ * thread), which is then scanned for the claims we are interested in. Other claims are skipped without being materialized, and the header and the
+ * signature are not decoded at all.
+ * <p>
+ * Like {@link JwtTokenUtility}, the signature is not verified, but expired tokens are rejected.
+ */
+final class StreamingJwtClaimsParser implements JwtClaimsParser {
+
+  private static final byte[] USER_ID = "internal_user_id".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] ACCOUNT_ID = "internal_account_id".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] ACCOUNT_NAME = "internal_account_name".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] EXPIRATION = "exp".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int[] BASE64URL = new int[128];
+  private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[1024]);
+
+  static {
+    Arrays.fill(BASE64URL, -1);
+    String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+    for (int i = 0; i < alphabet.length(); i++) {
+      BASE64URL[alphabet.charAt(i)] = i;
+    }
+  }
+
+  private final Clock clock;
+
+  StreamingJwtClaimsParser() {
+    this(Clock.SYSTEM);
+  }
+
+  StreamingJwtClaimsParser(Clock clock) {
+    this.clock = clock;
+  }
+
+  @Override
+  public JwtClaims parse(String jwtToken) throws InvalidJwtException {
+    int payloadStart = jwtToken.indexOf('.') + 1;
+    int payloadEnd = payloadStart > 0 ? jwtToken.indexOf('.', payloadStart) : -1;
+    if (payloadEnd < 0) {
+      throw new InvalidJwtException("JWT token must consist of a header, a payload and a signature");
+    }
+    byte[] buffer = getBuffer((payloadEnd - payloadStart) * 3 / 4 + 1);
+    int length = decodeBase64Url(jwtToken, payloadStart, payloadEnd, buffer);
+    JwtClaims claims = new PayloadScanner(buffer, length).scan();
+    if (claims.getExpiration() != null && clock.wallTime() >= TimeUnit.SECONDS.toMillis(claims.getExpiration())) {
+      throw new InvalidJwtException("JWT token has expired");
+    }
+    return claims;
+  }
+
+  private static byte[] getBuffer(int minLength) {
+    byte[] buffer = BUFFER.get();
+    if (buffer.length < minLength) {
+      buffer = new byte[Math.max(minLength, buffer.length * 2)];
+      BUFFER.set(buffer);
+    }
+    return buffer;
+  }
+
+  private static int decodeBase64Url(String token, int start, int end, byte[] buffer) throws InvalidJwtException {
+    int length = 0;
+    int bits = 0;
+    int bitCount = 0;
+    for (int i = start; i < end; i++) {
+      char c = token.charAt(i);
+      if (c == '=') {
+        break;
+      }
+      int value = c < BASE64URL.length ? BASE64URL[c] : -1;
+      if (value < 0) {
+        throw new InvalidJwtException("JWT payload is not base64url encoded");
+      }
+      bits = (bits << 6) | value;
+      bitCount += 6;
+      if (bitCount >= 8) {
+        bitCount -= 8;
+        buffer[length++] = (byte) (bits >> bitCount);
+        bits &= (1 << bitCount) - 1;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Minimal scanner of a JSON object, which only validates as much of the structure as needed to find the top level claims.
+   */
+  private static final class PayloadScanner {
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    private PayloadScanner(byte[] buffer, int limit) {
+      this.buffer = buffer;
+      this.limit = limit;
+    }
+
+    private JwtClaims scan() throws InvalidJwtException {
+      JwtClaims claims = new JwtClaims();
+      expect('{');
+      if (peek() == '}') {
+        return claims;
+      }
+      while (true) {
+        expect('"');
+        int keyStart = position;
+        skipString();
+        int keyEnd = position - 1;
+        expect(':');
+        skipWhitespace();
+        if (matches(USER_ID, keyStart, keyEnd)) {
+          claims.setUserId(readLong());
+        } else if (matches(ACCOUNT_ID, keyStart, keyEnd)) {
+          claims.setAccountId(readLong());
+        } else if (matches(ACCOUNT_NAME, keyStart, keyEnd)) {
+          claims.setAccountName(readString());
+        } else if (matches(EXPIRATION, keyStart, keyEnd)) {
+          claims.setExpiration(readLong());
+        } else {
+          skipValue();
+        }
+        byte next = peek();
+        position++;
+        if (next == '}') {
+          return claims;
+        }
+        if (next != ',') {
+          throw invalid();
+        }
+      }
+    }
+
+    private boolean matches(byte[] key, int start, int end) {
+      return end - start == key.length && Arrays.equals(buffer, start, end, key, 0, key.length);
+    }
+
+    private Long readLong() throws InvalidJwtException {
+      byte first = peek();
+      if (first == 'n') {
+        skipLiteral();
+        return null;
+      }
+      String text = first == '"' ? readString() : null;
+      if (text == null) {
+        int start = position;
+        long value = 0;
+        boolean negative = buffer[position] == '-';
+        if (negative) {
+          position++;
+        }
+        int digitsStart = position;
+        while (position < limit && buffer[position] >= '0' && buffer[position] <= '9' && position - digitsStart < 18) {
+          value = value * 10 + (buffer[position++] - '0');
+        }
+        if (position > digitsStart && (position == limit || isDelimiter(buffer[position]))) {
+          return negative ? -value : value;
+        }
+        // fractions, exponents and very long numbers are rare enough to be parsed the slow way
+        position = start;
+        skipLiteral();
+        text = new String(buffer, start, position - start, StandardCharsets.US_ASCII);
+      }
+      try {
+        return new BigDecimal(text.trim()).longValueExact();
+      } catch (NumberFormatException | ArithmeticException e) {
+        throw new InvalidJwtException("JWT claim is not a valid number: " + text, e);
+      }
+    }
+
+    private String readString() throws InvalidJwtException {
+      byte first = peek();
+      if (first == 'n') {
+        skipLiteral();
+        return null;
+      }
+      if (first != '"') {
+        // numbers and booleans are converted to their textual representation
+        int start = position;
+        skipLiteral();
+        return new String(buffer, start, position - start, StandardCharsets.US_ASCII);
+      }
+      position++;
+      int segmentStart = position;
+      StringBuilder value = null;
+      while (true) {
+        byte b = next();
+        if (b == '"') {
+          if (value == null) {
+            return new String(buffer, segmentStart, position - 1 - segmentStart, StandardCharsets.UTF_8);
+          }
+          return value.append(new String(buffer, segmentStart, position - 1 - segmentStart, StandardCharsets.UTF_8)).toString();
+        }
+        if (b == '\\') {
+          if (value == null) {
+            value = new StringBuilder();
+          }
+          value.append(new String(buffer, segmentStart, position - 1 - segmentStart, StandardCharsets.UTF_8));
+          value.append(readEscape());
+          segmentStart = position;
+        }
+      }
+    }
+
+    private char readEscape() throws InvalidJwtException {
+      byte b = next();
+      switch (b) {
+        case '"':
+        case '\\':
+        case '/':
+          return (char) b;
+        case 'b':
+          return '\b';
+        case 'f':
+          return '\f';
+        case 'n':
+          return '\n';
+        case 'r':
+          return '\r';
+        case 't':
+          return '\t';
+        case 'u':
+          if (position + 4 > limit) {
+            throw invalid();
+          }
+          try {
+            char c = (char) Integer.parseInt(new String(buffer, position, 4, StandardCharsets.US_ASCII), 16);
+            position += 4;
+            return c;
+          } catch (NumberFormatException e) {
+            throw invalid();
+          }
+        default:
+          throw invalid();
+      }
+    }
+
+    private void skipValue() throws InvalidJwtException {
+      byte first = peek();
+      if (first == '"') {
+        position++;
+        skipString();
+      } else if (first == '{' || first == '[') {
+        skipNested();
+      } else {
+        skipLiteral();
+      }
+    }
+
+    private void skipNested() throws InvalidJwtException {
+      int depth = 0;
+      do {
+        byte b = next();
+        if (b == '"') {
+          skipString();
+        } else if (b == '{' || b == '[') {
+          depth++;
+        } else if (b == '}' || b == ']') {
+          depth--;
+        }
+      } while (depth > 0);
+    }
+
+    // expects the opening quote to be consumed already
+    private void skipString() throws InvalidJwtException {
+      while (true) {
+        byte b = next();
+        if (b == '\\') {
+          next();
+        } else if (b == '"') {
+          return;
+        }
+      }
+    }
+
+    private void skipLiteral() throws InvalidJwtException {
+      int start = position;
+      while (position < limit && !isDelimiter(buffer[position])) {
+        position++;
+      }
+      if (position == start) {
+        throw invalid();
+      }
+    }
+
+    private void expect(char expected) throws InvalidJwtException {
+      if (peek() != expected) {
+        throw invalid();
+      }
+      position++;
+    }
+
+    // skips whitespace and returns the next byte without consuming it
+    private byte peek() throws InvalidJwtException {
+      skipWhitespace();
+      if (position >= limit) {
+        throw invalid();
+      }
+      return buffer[position];
+    }
+
+    private byte next() throws InvalidJwtException {
+      if (position >= limit) {
+        throw invalid();
+      }
+      return buffer[position++];
+    }
+
+    private void skipWhitespace() {
+      while (position < limit && isWhitespace(buffer[position])) {
+        position++;
+      }
+    }
+
+    private static boolean isDelimiter(byte b) {
+      return b == ',' || b == '}' || b == ']' || isWhitespace(b);
+    }
+
+    private static boolean isWhitespace(byte b) {
+      return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private InvalidJwtException invalid() {
+      return new InvalidJwtException("JWT payload is not a valid JSON object at position " + position);
+    }
+  }
+}
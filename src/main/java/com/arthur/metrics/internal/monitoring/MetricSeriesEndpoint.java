@@ -0,0 +1,31 @@
+package com.arthur.metrics.internal.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * Actuator endpoint that lists the metric names with the most series, E.g. <code>GET /actuator/metricseries?limit=20</code>, to find the metrics that
+ * drive the cost of publishing.
+ */
+@Endpoint(id = "metricseries")
+public class MetricSeriesEndpoint {
+
+  private static final int DEFAULT_LIMIT = 20;
+
+  private final SelfMetrics selfMetrics;
+
+  public MetricSeriesEndpoint(SelfMetrics selfMetrics) {
+    this.selfMetrics = selfMetrics;
+  }
+
+  @ReadOperation
+  public Map<String, Object> series(@Nullable Integer limit) {
+    Map<String, Object> series = new LinkedHashMap<>();
+    series.put("totalSeries", (long) selfMetrics.seriesCount());
+    series.put("topMetricNames", selfMetrics.topMetricNamesBySeriesCount(limit != null ? limit : DEFAULT_LIMIT));
+    return series;
+  }
+}
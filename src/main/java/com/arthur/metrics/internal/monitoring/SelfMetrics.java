@@ -0,0 +1,122 @@
+package com.arthur.metrics.internal.monitoring;
+
+import com.arthur.metrics.meters.MetricsTimer;
+import com.arthur.metrics.service.Metrics;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures what the library itself costs: publishing, the meters of the registry and the overhead of the <code>MetricsFilter</code> per request.
+ * <p>
+ * Measurements are only {@link LongAdder} increments, so they are cheap enough to be taken all the time. Once bound to {@link Metrics}, they are
+ * published as counters, so every reader gets the increase per step, under the same namespace and tags as all other metrics. The overhead of the
+ * filter is recorded by a timer.
+ */
+public class SelfMetrics {
+
+  public static final String PUBLISH_DURATION_METRIC_NAME = "metrics.publish.duration";
+  public static final String PUBLISH_REQUESTS_METRIC_NAME = "metrics.publish.requests";
+  public static final String PUBLISH_DATUMS_METRIC_NAME = "metrics.publish.datums";
+  public static final String PUBLISH_REQUEST_BYTES_METRIC_NAME = "metrics.publish.request.bytes";
+  public static final String FAILED_DATUMS_METRIC_NAME = "metrics.publish.datums.failed";
+  public static final String DROPPED_DATUMS_METRIC_NAME = "metrics.publish.datums.dropped";
+  public static final String SERIES_METRIC_NAME = "metrics.registry.series";
+  public static final String CREATED_METERS_METRIC_NAME = "metrics.registry.meters.created";
+  public static final String FILTER_OVERHEAD_METRIC_NAME = "metrics.filter.overhead";
+
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final LongAdder publishNanos = new LongAdder();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder datums = new LongAdder();
+  private final LongAdder requestBytes = new LongAdder();
+  private final LongAdder failedDatums = new LongAdder();
+  private final LongAdder droppedDatums = new LongAdder();
+  private final LongAdder createdMeters = new LongAdder();
+  // null until bound
+  private volatile MetricsTimer filterOverhead;
+  private volatile MeterRegistry meterRegistry;
+
+  /**
+   * Keeps track of the meters of the registry.
+   */
+  public void monitor(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    meterRegistry.config().onMeterAdded(meter -> createdMeters.increment());
+  }
+
+  /**
+   * Registers the measurements as counters and a timer, the number of series as a gauge.
+   */
+  public void bindTo(Metrics metricsService) {
+    // a SelfMetrics is kept by the application context, function counters only reference it weakly
+    metricsService.functionCounter(PUBLISH_DURATION_METRIC_NAME, this, selfMetrics -> selfMetrics.publishNanos.sum() / NANOS_PER_MILLI);
+    metricsService.functionCounter(PUBLISH_REQUESTS_METRIC_NAME, this, selfMetrics -> selfMetrics.requests.sum());
+    metricsService.functionCounter(PUBLISH_DATUMS_METRIC_NAME, this, selfMetrics -> selfMetrics.datums.sum());
+    metricsService.functionCounter(PUBLISH_REQUEST_BYTES_METRIC_NAME, this, selfMetrics -> selfMetrics.requestBytes.sum());
+    metricsService.functionCounter(FAILED_DATUMS_METRIC_NAME, this, selfMetrics -> selfMetrics.failedDatums.sum());
+    metricsService.functionCounter(DROPPED_DATUMS_METRIC_NAME, this, selfMetrics -> selfMetrics.droppedDatums.sum());
+    metricsService.gauge(SERIES_METRIC_NAME, this, SelfMetrics::seriesCount);
+    metricsService.functionCounter(CREATED_METERS_METRIC_NAME, this, selfMetrics -> selfMetrics.createdMeters.sum());
+    filterOverhead = metricsService.createOrGetTimer(FILTER_OVERHEAD_METRIC_NAME);
+  }
+
+  public void recordPublish(long durationNanos) {
+    publishNanos.add(durationNanos);
+  }
+
+  /**
+   * @param sizeInBytes Estimated size of the request
+   */
+  public void recordRequest(int datumCount, long sizeInBytes) {
+    requests.increment();
+    datums.add(datumCount);
+    requestBytes.add(sizeInBytes);
+  }
+
+  /**
+   * @param dropped <code>true</code> if the datums are lost, rather than spooled to be sent again
+   */
+  public void recordFailedDatums(int datumCount, boolean dropped) {
+    failedDatums.add(datumCount);
+    if (dropped) {
+      droppedDatums.add(datumCount);
+    }
+  }
+
+  public void recordFilterOverhead(long overheadNanos) {
+    MetricsTimer filterOverhead = this.filterOverhead;
+    if (filterOverhead != null) {
+      filterOverhead.record(overheadNanos);
+    }
+  }
+
+  /**
+   * @return Metric names with the most series (meters), in descending order of their number of series
+   */
+  public Map<String, Integer> topMetricNamesBySeriesCount(int limit) {
+    MeterRegistry registry = meterRegistry;
+    Map<String, Integer> seriesCounts = new HashMap<>();
+    if (registry != null) {
+      for (Meter meter : registry.getMeters()) {
+        seriesCounts.merge(meter.getId().getName(), 1, Integer::sum);
+      }
+    }
+    Map<String, Integer> topMetricNames = new LinkedHashMap<>();
+    seriesCounts.entrySet().stream()
+        .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+        .limit(limit)
+        .forEach(entry -> topMetricNames.put(entry.getKey(), entry.getValue()));
+    return topMetricNames;
+  }
+
+  public double seriesCount() {
+    MeterRegistry registry = meterRegistry;
+    return registry == null ? 0 : registry.getMeters().size();
+  }
+}
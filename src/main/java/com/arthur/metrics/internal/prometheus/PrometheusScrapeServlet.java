@@ -0,0 +1,34 @@
+package com.arthur.metrics.internal.prometheus;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the Prometheus scrape endpoint, streaming the exposition through a small buffer to the response.
+ */
+public class PrometheusScrapeServlet extends HttpServlet {
+
+  private static final long serialVersionUID = 1L;
+  private static final int BUFFER_SIZE = 8192;
+
+  private final transient PrometheusTextWriter textWriter;
+
+  public PrometheusScrapeServlet(PrometheusTextWriter textWriter) {
+    this.textWriter = textWriter;
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(PrometheusTextWriter.CONTENT_TYPE);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+    textWriter.write(writer);
+    writer.flush();
+  }
+}
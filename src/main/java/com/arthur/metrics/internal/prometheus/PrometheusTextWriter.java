@@ -0,0 +1,324 @@
+package com.arthur.metrics.internal.prometheus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.NamingConvention;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the meters of a registry in the Prometheus text exposition format (version 0.0.4) straight to a {@link Writer}, so that a scrape never
+ * holds the whole exposition in memory.
+ * <p>
+ * The metric name and labels that start a sample line are rendered once per meter and cached until the meter is removed, so that a scrape only
+ * formats the values. The meters are expected to come from a {@link io.micrometer.prometheus.PrometheusMeterRegistry}, which makes them cumulative,
+ * records time in seconds and names them following the Prometheus naming convention.
+ */
+public class PrometheusTextWriter {
+
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final String[] VALUE_SUFFIXES = {""};
+  private static final String[] DISTRIBUTION_SUFFIXES = {"_count", "_sum", "_max"};
+  private static final String[] LONG_TASK_TIMER_SUFFIXES = {"_active_count", "_duration_sum", "_max"};
+  private static final String[] FUNCTION_TIMER_SUFFIXES = {"_count", "_sum"};
+
+  private final MeterRegistry meterRegistry;
+  private final NamingConvention namingConvention;
+  private final Map<Meter.Id, Series> seriesById = new ConcurrentHashMap<>();
+
+  public PrometheusTextWriter(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.namingConvention = meterRegistry.config().namingConvention();
+    meterRegistry.config().onMeterRemoved(meter -> seriesById.remove(meter.getId()));
+  }
+
+  public void write(Writer writer) throws IOException {
+    // samples of a metric family have to be written together
+    Map<String, List<Meter>> families = new HashMap<>();
+    for (Meter meter : meterRegistry.getMeters()) {
+      families.computeIfAbsent(meter.getId().getName(), name -> new ArrayList<>(1)).add(meter);
+    }
+    for (List<Meter> family : families.values()) {
+      writeFamily(writer, family);
+    }
+  }
+
+  private void writeFamily(Writer writer, List<Meter> family) throws IOException {
+    Meter first = family.get(0);
+    if (first instanceof Timer || first instanceof DistributionSummary) {
+      writeDistributions(writer, family);
+    } else if (first instanceof Counter || first instanceof FunctionCounter) {
+      writeValues(writer, family, "counter");
+    } else if (first instanceof Gauge) {
+      writeValues(writer, family, "gauge");
+    } else if (first instanceof LongTaskTimer) {
+      writeLongTaskTimers(writer, family);
+    } else if (first instanceof FunctionTimer) {
+      writeFunctionTimers(writer, family);
+    } else {
+      writeMeasurements(writer, family);
+    }
+  }
+
+  private void writeValues(Writer writer, List<Meter> family, String type) throws IOException {
+    writeHeader(writer, family.get(0), "", type);
+    for (Meter meter : family) {
+      writeSample(writer, series(meter).prefixes(VALUE_SUFFIXES)[0], value(meter));
+    }
+  }
+
+  private void writeDistributions(Writer writer, List<Meter> family) throws IOException {
+    HistogramSnapshot[] snapshots = new HistogramSnapshot[family.size()];
+    for (int i = 0; i < snapshots.length; i++) {
+      Meter meter = family.get(i);
+      snapshots[i] = meter instanceof Timer ? ((Timer) meter).takeSnapshot() : ((DistributionSummary) meter).takeSnapshot();
+    }
+    boolean histogram = snapshots[0].histogramCounts().length > 0;
+    writeHeader(writer, family.get(0), "", histogram ? "histogram" : "summary");
+    for (int i = 0; i < snapshots.length; i++) {
+      Meter meter = family.get(i);
+      HistogramSnapshot snapshot = snapshots[i];
+      boolean timer = meter instanceof Timer;
+      Series series = series(meter);
+      String[] prefixes = series.prefixes(DISTRIBUTION_SUFFIXES);
+      if (histogram) {
+        CountAtBucket[] buckets = snapshot.histogramCounts();
+        String[] bucketPrefixes = series.bucketPrefixes(buckets, timer);
+        for (int j = 0; j < buckets.length; j++) {
+          writeSample(writer, bucketPrefixes[j], buckets[j].count());
+        }
+        // the histogram is cumulative, so the +Inf bucket holds every sample
+        writeSample(writer, bucketPrefixes[buckets.length], snapshot.count());
+      } else {
+        ValueAtPercentile[] percentiles = snapshot.percentileValues();
+        String[] quantilePrefixes = series.quantilePrefixes(percentiles);
+        for (int j = 0; j < percentiles.length; j++) {
+          writeSample(writer, quantilePrefixes[j], timer ? percentiles[j].value(TimeUnit.SECONDS) : percentiles[j].value());
+        }
+      }
+      writeSample(writer, prefixes[0], snapshot.count());
+      writeSample(writer, prefixes[1], timer ? snapshot.total(TimeUnit.SECONDS) : snapshot.total());
+    }
+    writeHeader(writer, family.get(0), "_max", "gauge");
+    for (int i = 0; i < snapshots.length; i++) {
+      HistogramSnapshot snapshot = snapshots[i];
+      writeSample(writer, series(family.get(i)).prefixes(DISTRIBUTION_SUFFIXES)[2],
+          family.get(i) instanceof Timer ? snapshot.max(TimeUnit.SECONDS) : snapshot.max());
+    }
+  }
+
+  private void writeLongTaskTimers(Writer writer, List<Meter> family) throws IOException {
+    for (int suffix = 0; suffix < LONG_TASK_TIMER_SUFFIXES.length; suffix++) {
+      writeHeader(writer, family.get(0), LONG_TASK_TIMER_SUFFIXES[suffix], "gauge");
+      for (Meter meter : family) {
+        LongTaskTimer longTaskTimer = (LongTaskTimer) meter;
+        double value = suffix == 0 ? longTaskTimer.activeTasks()
+            : suffix == 1 ? longTaskTimer.duration(TimeUnit.SECONDS) : longTaskTimer.max(TimeUnit.SECONDS);
+        writeSample(writer, series(meter).prefixes(LONG_TASK_TIMER_SUFFIXES)[suffix], value);
+      }
+    }
+  }
+
+  private void writeFunctionTimers(Writer writer, List<Meter> family) throws IOException {
+    writeHeader(writer, family.get(0), "", "summary");
+    for (Meter meter : family) {
+      FunctionTimer functionTimer = (FunctionTimer) meter;
+      String[] prefixes = series(meter).prefixes(FUNCTION_TIMER_SUFFIXES);
+      writeSample(writer, prefixes[0], functionTimer.count());
+      writeSample(writer, prefixes[1], functionTimer.totalTime(TimeUnit.SECONDS));
+    }
+  }
+
+  // custom meters are written untyped, one sample per measurement, with prefixes that are not cached
+  private void writeMeasurements(Writer writer, List<Meter> family) throws IOException {
+    for (Meter meter : family) {
+      Series series = series(meter);
+      for (Measurement measurement : meter.measure()) {
+        writeSample(writer, series.prefix("_" + measurement.getStatistic().getTagValueRepresentation(), null, null), measurement.getValue());
+      }
+    }
+  }
+
+  private static double value(Meter meter) {
+    if (meter instanceof Counter) {
+      return ((Counter) meter).count();
+    }
+    if (meter instanceof FunctionCounter) {
+      return ((FunctionCounter) meter).count();
+    }
+    if (meter instanceof TimeGauge) {
+      return ((TimeGauge) meter).value(TimeUnit.SECONDS);
+    }
+    return ((Gauge) meter).value();
+  }
+
+  private void writeHeader(Writer writer, Meter meter, String suffix, String type) throws IOException {
+    String name = series(meter).name;
+    String description = meter.getId().getDescription();
+    if (description != null && !description.isEmpty()) {
+      writer.write("# HELP ");
+      writer.write(name);
+      writer.write(suffix);
+      writer.write(' ');
+      writeHelp(writer, description);
+      writer.write('\n');
+    }
+    writer.write("# TYPE ");
+    writer.write(name);
+    writer.write(suffix);
+    writer.write(' ');
+    writer.write(type);
+    writer.write('\n');
+  }
+
+  private static void writeSample(Writer writer, String prefix, double value) throws IOException {
+    writer.write(prefix);
+    writer.write(format(value));
+    writer.write('\n');
+  }
+
+  private Series series(Meter meter) {
+    return seriesById.computeIfAbsent(meter.getId(), id -> new Series(id.getConventionName(namingConvention), labels(id.getConventionTags(namingConvention))));
+  }
+
+  private static String labels(List<Tag> tags) {
+    StringBuilder labels = new StringBuilder();
+    for (Tag tag : tags) {
+      if (labels.length() > 0) {
+        labels.append(',');
+      }
+      labels.append(tag.getKey()).append("=\"");
+      appendEscaped(labels, tag.getValue());
+      labels.append('"');
+    }
+    return labels.toString();
+  }
+
+  private static void appendEscaped(StringBuilder builder, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' || c == '"') {
+        builder.append('\\').append(c);
+      } else if (c == '\n') {
+        builder.append("\\n");
+      } else {
+        builder.append(c);
+      }
+    }
+  }
+
+  // help texts escape backslashes and line feeds, but not quotes
+  private static void writeHelp(Writer writer, String value) throws IOException {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\') {
+        writer.write('\\');
+        writer.write(c);
+      } else if (c == '\n') {
+        writer.write("\\n");
+      } else {
+        writer.write(c);
+      }
+    }
+  }
+
+  static String format(double value) {
+    if (value == Double.POSITIVE_INFINITY) {
+      return "+Inf";
+    }
+    if (value == Double.NEGATIVE_INFINITY) {
+      return "-Inf";
+    }
+    return Double.toString(value);
+  }
+
+  /**
+   * Cached sample line prefixes (<code>name{labels} </code>) of a meter. Prefixes may be rendered concurrently by two scrapes, which render the
+   * same text.
+   */
+  private static final class Series {
+
+    private final String name;
+    private final String labels;
+    private volatile String[] prefixes;
+    private volatile String[] boundaryPrefixes;
+
+    private Series(String name, String labels) {
+      this.name = name;
+      this.labels = labels;
+    }
+
+    String[] prefixes(String[] suffixes) {
+      String[] result = prefixes;
+      if (result == null) {
+        result = new String[suffixes.length];
+        for (int i = 0; i < suffixes.length; i++) {
+          result[i] = prefix(suffixes[i], null, null);
+        }
+        prefixes = result;
+      }
+      return result;
+    }
+
+    // boundaries are configured when a meter is created, so the cached prefixes only need to be rendered again if the count does not match
+    String[] quantilePrefixes(ValueAtPercentile[] percentiles) {
+      String[] result = boundaryPrefixes;
+      if (result == null || result.length != percentiles.length) {
+        result = new String[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+          result[i] = prefix("", "quantile", format(percentiles[i].percentile()));
+        }
+        boundaryPrefixes = result;
+      }
+      return result;
+    }
+
+    String[] bucketPrefixes(CountAtBucket[] buckets, boolean timer) {
+      String[] result = boundaryPrefixes;
+      if (result == null || result.length != buckets.length + 1) {
+        result = new String[buckets.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+          result[i] = prefix("_bucket", "le", format(timer ? buckets[i].bucket(TimeUnit.SECONDS) : buckets[i].bucket()));
+        }
+        result[buckets.length] = prefix("_bucket", "le", "+Inf");
+        boundaryPrefixes = result;
+      }
+      return result;
+    }
+
+    String prefix(String suffix, String labelName, String labelValue) {
+      StringBuilder prefix = new StringBuilder(name.length() + suffix.length() + labels.length() + 24).append(name).append(suffix);
+      if (!labels.isEmpty() || labelName != null) {
+        prefix.append('{').append(labels);
+        if (labelName != null) {
+          if (!labels.isEmpty()) {
+            prefix.append(',');
+          }
+          prefix.append(labelName).append("=\"").append(labelValue).append('"');
+        }
+        prefix.append('}');
+      }
+      return prefix.append(' ').toString();
+    }
+  }
+}
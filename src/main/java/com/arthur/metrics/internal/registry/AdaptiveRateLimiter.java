@@ -0,0 +1,107 @@
+package com.arthur.metrics.internal.registry;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.SchedulerConfig;
+import com.arthur.metrics.service.Metrics;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that limits the rate of <code>PutMetricData</code> requests, with a rate that adapts to throttling responses (additive increase,
+ * multiplicative decrease): every successful request raises the rate by {@link SchedulerConfig#getAdditiveIncrease()} divided by the rate, which is
+ * about that many requests per second for each second of successful requests, while a throttled request multiplies the rate by
+ * {@link SchedulerConfig#getMultiplicativeDecrease()}.
+ * <p>
+ * The requests of a step are sent concurrently, so several of them are usually throttled at once. The rate is only decreased once per second, so that
+ * they count as a single congestion signal.
+ */
+public class AdaptiveRateLimiter {
+
+  public static final String RATE_METRIC_NAME = "metrics.publish.rate";
+
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final double minRequestsPerSecond;
+  private final double maxRequestsPerSecond;
+  private final double burstRequests;
+  private final double additiveIncrease;
+  private final double multiplicativeDecrease;
+  private final LongSupplier nanoTime;
+  // guarded by this
+  private double requestsPerSecond;
+  private double tokens;
+  private long refilledNanos;
+  private long decreasedNanos;
+
+  public AdaptiveRateLimiter(SchedulerConfig schedulerConfig) {
+    this(schedulerConfig, System::nanoTime);
+  }
+
+  AdaptiveRateLimiter(SchedulerConfig schedulerConfig, LongSupplier nanoTime) {
+    if (schedulerConfig.getMinRequestsPerSecond() <= 0 || schedulerConfig.getMaxRequestsPerSecond() < schedulerConfig.getMinRequestsPerSecond()) {
+      throw new IllegalArgumentException("minRequestsPerSecond must be greater than 0 and not greater than maxRequestsPerSecond");
+    }
+    this.minRequestsPerSecond = schedulerConfig.getMinRequestsPerSecond();
+    this.maxRequestsPerSecond = schedulerConfig.getMaxRequestsPerSecond();
+    this.burstRequests = Math.max(1, schedulerConfig.getBurstRequests());
+    this.additiveIncrease = schedulerConfig.getAdditiveIncrease();
+    this.multiplicativeDecrease = schedulerConfig.getMultiplicativeDecrease();
+    this.nanoTime = nanoTime;
+    this.requestsPerSecond = maxRequestsPerSecond;
+    this.tokens = burstRequests;
+    this.refilledNanos = nanoTime.getAsLong();
+    this.decreasedNanos = refilledNanos - NANOS_PER_SECOND;
+  }
+
+  /**
+   * Registers the current rate (requests per second) as a gauge.
+   */
+  public void bindTo(Metrics metricsService) {
+    metricsService.gauge(RATE_METRIC_NAME, this, AdaptiveRateLimiter::getRequestsPerSecond);
+  }
+
+  /**
+   * Waits until a request may be sent.
+   *
+   * @return <code>false</code> if the request could not be sent before the deadline
+   */
+  public boolean acquire(long deadlineNanos) throws InterruptedException {
+    while (true) {
+      long now = nanoTime.getAsLong();
+      long waitNanos;
+      synchronized (this) {
+        refill(now);
+        if (tokens >= 1) {
+          tokens--;
+          return true;
+        }
+        waitNanos = (long) Math.ceil((1 - tokens) / requestsPerSecond * NANOS_PER_SECOND);
+      }
+      if (now + waitNanos - deadlineNanos > 0) {
+        return false;
+      }
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  public synchronized void onSuccess() {
+    requestsPerSecond = Math.min(maxRequestsPerSecond, requestsPerSecond + additiveIncrease / requestsPerSecond);
+  }
+
+  public synchronized void onThrottled() {
+    long now = nanoTime.getAsLong();
+    if (now - decreasedNanos >= NANOS_PER_SECOND) {
+      refill(now);
+      requestsPerSecond = Math.max(minRequestsPerSecond, requestsPerSecond * multiplicativeDecrease);
+      decreasedNanos = now;
+    }
+  }
+
+  public synchronized double getRequestsPerSecond() {
+    return requestsPerSecond;
+  }
+
+  private void refill(long now) {
+    tokens = Math.min(burstRequests, tokens + (now - refilledNanos) * requestsPerSecond / NANOS_PER_SECOND);
+    refilledNanos = now;
+  }
+}
@@ -0,0 +1,562 @@
+package com.arthur.metrics.internal.registry;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.HighResolutionConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.IdleSeriesConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.PublisherConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.SchedulerConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.SketchConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.StepTierConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.TimerEncoding;
+import io.micrometer.cloudwatch2.CloudWatchConfig;
+import io.micrometer.cloudwatch2.CloudWatchNamingConvention;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.HistogramGauges;
+import io.micrometer.core.instrument.distribution.pause.PauseDetector;
+import io.micrometer.core.instrument.step.StepFunctionCounter;
+import io.micrometer.core.instrument.step.StepFunctionTimer;
+import io.micrometer.core.instrument.step.StepMeterRegistry;
+import io.micrometer.core.instrument.util.NamedThreadFactory;
+import io.micrometer.core.instrument.util.StringUtils;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.log4j.Log4j2;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+/**
+ * Step registry that hands its metric data to a {@link MetricDataPublisher}: either a {@link CloudWatchPublisher}, which packs the metric data into as
+ * few <code>PutMetricData</code> requests as the API allows, or an {@link EmfPublisher}, which writes them as embedded metric format log events.
+ * <p>
+ * Meters are mapped to the same metric names as <code>CloudWatchMeterRegistry</code> does (E.g. <code>&lt;metric name&gt;.count</code>), unless timers
+ * are encoded as {@link TimerEncoding#STATISTIC_SET}, in which case a timer is published as a single <code>&lt;metric name&gt;</code> datum with sample
+ * count, sum, minimum and maximum.
+ * <p>
+ * Additionally, the distribution of selected timers is published as <code>&lt;metric name&gt;.distribution</code>. The distribution is published as the
+ * <code>Values</code> and <code>Counts</code> of a metric datum, using the (fixed) buckets of a {@link Base2ExponentialBuckets} layout. CloudWatch
+ * aggregates the values of all instances, so percentiles of that metric are computed from the combined distribution of the whole fleet.
+ * <p>
+ * Selected timers are published at a resolution of 1 second instead: a {@link HighResolutionTimer} aggregates the recordings per second, and every
+ * second of a step in which something was recorded is published as a <code>&lt;metric name&gt;</code> statistic set with the timestamp of the second
+ * and a storage resolution of 1 second. The seconds are published together with the rest of the step, so they do not add requests of their own.
+ * <p>
+ * Meters can be routed to a step tier, with a step that is a multiple of the step of the registry (E.g. 5 minutes for low priority counters). Their
+ * step meters aggregate over the step of the tier, and they are only published when a step of the tier has completed, so they cost neither
+ * publishing time nor metric data in between.
+ * <p>
+ * When {@link IdleSeriesConfig#isSkipped() idle series are skipped}, counters, timers and distribution summaries that recorded nothing in the step are
+ * not published, except for a heartbeat every {@link IdleSeriesConfig#getHeartbeatSteps()} steps of the meter, so that alarms that treat missing data
+ * as breaching still see the series.
+ * <p>
+ * When {@link SchedulerConfig#isEnabled() scheduling} is enabled, a step is published at a random offset into the next step, chosen once per instance,
+ * rather than right at the step boundary, so that the instances of a fleet do not all call CloudWatch at the same time. Step meters keep the values
+ * of the completed step until the next boundary, so the published data are the same.
+ */
+@Log4j2
+public class ArthurCloudWatchMeterRegistry extends StepMeterRegistry {
+
+  public static final String DISTRIBUTION_SUFFIX = ".distribution";
+  // limit of distinct values per metric datum
+  static final int MAX_VALUES_PER_DATUM = 150;
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+  // range of values accepted by CloudWatch
+  private static final double MIN_ABSOLUTE_VALUE = 8.515920e-109;
+  private static final double MAX_ABSOLUTE_VALUE = 1.174271e+108;
+  private static final StandardUnit BASE_TIME_UNIT = StandardUnit.MILLISECONDS;
+  // leaves time to publish before the values of the next step are rolled over
+  private static final double MAX_JITTER_RATIO = 0.9;
+  // by value (E.g. "Bytes") and lower case value, so that the common base units resolve without converting them
+  private static final Map<String, StandardUnit> STANDARD_UNITS_BY_NAME = StandardUnit.knownValues().stream()
+      .flatMap(unit -> Stream.of(Map.entry(unit.toString(), unit), Map.entry(unit.toString().toLowerCase(Locale.ROOT), unit)))
+      .distinct()
+      .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+  private final CloudWatchConfig cloudWatchConfig;
+  private final MetricDataPublisher publisher;
+  private final TimerEncoding timerEncoding;
+  private final Set<String> sketchMetricNames;
+  private final List<Pattern> highResolutionPatterns;
+  private final Set<String> highResolutionMetricNames = ConcurrentHashMap.newKeySet();
+  private final Base2ExponentialBuckets buckets;
+  private final long publishOffsetMillis;
+  private final long stepMillis;
+  private final List<StepTier> stepTiers;
+  private final Map<String, Long> requestedStepMillis = new ConcurrentHashMap<>();
+  // resolved when the first meter of a name is created, so that all meters of a name have the same step
+  private final Map<String, Long> stepMillisByMetricName = new ConcurrentHashMap<>();
+  private volatile boolean tiered;
+  private final boolean skipIdleSeries;
+  private final int heartbeatSteps;
+  private volatile IdleMeterSweeper idleMeterSweeper;
+  private ScheduledExecutorService publishScheduler;
+  // only used by the publishing thread
+  private final double[] distributionValues = new double[MAX_VALUES_PER_DATUM];
+  private final double[] distributionCounts = new double[MAX_VALUES_PER_DATUM];
+  private final Set<Meter.Id> idleMeterIds = new HashSet<>();
+
+  public ArthurCloudWatchMeterRegistry(CloudWatchConfig cloudWatchConfig, Clock clock, CloudWatchAsyncClient cloudWatchAsyncClient,
+      SketchConfig sketchConfig, PublisherConfig publisherConfig) {
+    this(cloudWatchConfig, clock, new CloudWatchPublisher(cloudWatchAsyncClient, cloudWatchConfig.namespace(), publisherConfig, cloudWatchConfig.step()),
+        sketchConfig, publisherConfig);
+  }
+
+  public ArthurCloudWatchMeterRegistry(CloudWatchConfig cloudWatchConfig, Clock clock, MetricDataPublisher publisher, SketchConfig sketchConfig,
+      PublisherConfig publisherConfig) {
+    this(cloudWatchConfig, clock, publisher, sketchConfig, new HighResolutionConfig(), publisherConfig);
+  }
+
+  public ArthurCloudWatchMeterRegistry(CloudWatchConfig cloudWatchConfig, Clock clock, MetricDataPublisher publisher, SketchConfig sketchConfig,
+      HighResolutionConfig highResolutionConfig, PublisherConfig publisherConfig) {
+    this(cloudWatchConfig, clock, publisher, sketchConfig, highResolutionConfig, List.of(), publisherConfig);
+  }
+
+  public ArthurCloudWatchMeterRegistry(CloudWatchConfig cloudWatchConfig, Clock clock, MetricDataPublisher publisher, SketchConfig sketchConfig,
+      HighResolutionConfig highResolutionConfig, List<StepTierConfig> stepTierConfigs, PublisherConfig publisherConfig) {
+    super(cloudWatchConfig, clock);
+    this.cloudWatchConfig = cloudWatchConfig;
+    this.publisher = publisher;
+    this.timerEncoding = publisherConfig.getTimerEncoding();
+    this.sketchMetricNames = Set.copyOf(sketchConfig.getMetricNames());
+    this.highResolutionPatterns = highResolutionConfig.getMetricNamePatterns().stream().map(Pattern::compile).collect(Collectors.toList());
+    // recorded in nanoseconds
+    this.buckets = Base2ExponentialBuckets.of(sketchConfig.getMinValueInMillis() * NANOS_PER_MILLI, sketchConfig.getMaxValueInMillis() * NANOS_PER_MILLI,
+        sketchConfig.getMaxBuckets());
+    this.stepMillis = cloudWatchConfig.step().toMillis();
+    this.stepTiers = stepTierConfigs.stream()
+        .map(tier -> new StepTier(checkStepMillis(Duration.ofSeconds(tier.getStepInSeconds())), List.copyOf(tier.getMetricNamePrefixes())))
+        .collect(Collectors.toList());
+    this.skipIdleSeries = publisherConfig.getIdleSeries().isSkipped();
+    this.heartbeatSteps = publisherConfig.getIdleSeries().getHeartbeatSteps();
+    SchedulerConfig schedulerConfig = publisherConfig.getScheduler();
+    double jitterRatio = schedulerConfig.isEnabled() ? Math.min(schedulerConfig.getMaxJitterRatio(), MAX_JITTER_RATIO) : 0;
+    this.publishOffsetMillis = (long) (ThreadLocalRandom.current().nextDouble() * jitterRatio * stepMillis);
+    config().namingConvention(new CloudWatchNamingConvention());
+    start(new NamedThreadFactory("cloudwatch-metrics-publisher"));
+  }
+
+  @Override
+  public void start(ThreadFactory threadFactory) {
+    if (publishOffsetMillis == 0) {
+      super.start(threadFactory);
+      return;
+    }
+    stop();
+    long initialDelayMillis = stepMillis - clock.wallTime() % stepMillis + publishOffsetMillis;
+    log.info("Publishing metrics every {} at {}ms into the step", cloudWatchConfig.step(), publishOffsetMillis);
+    publishScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    publishScheduler.scheduleAtFixedRate(this::publishSafely, initialDelayMillis, stepMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    if (publishScheduler != null) {
+      publishScheduler.shutdown();
+      publishScheduler = null;
+    }
+    super.stop();
+  }
+
+  private void publishSafely() {
+    try {
+      publish();
+    } catch (Throwable e) {
+      log.warn("Unexpected exception thrown while publishing metrics for {}", getClass().getSimpleName(), e);
+    }
+  }
+
+  /**
+   * Publishes the timers with the given name at a resolution of 1 second, if they have not been created yet.
+   */
+  public void enableHighResolution(String metricName) {
+    highResolutionMetricNames.add(metricName);
+  }
+
+  /**
+   * Removes idle meters right after every publish.
+   */
+  public void expireIdleMeters(IdleMeterSweeper idleMeterSweeper) {
+    this.idleMeterSweeper = idleMeterSweeper;
+  }
+
+  /**
+   * Aggregates and publishes the meters with the given name every step, if they have not been created yet.
+   *
+   * @param step A multiple of the step of the registry
+   */
+  public void publishWithStep(String metricName, Duration step) {
+    requestedStepMillis.put(metricName, checkStepMillis(step));
+  }
+
+  private long checkStepMillis(Duration step) {
+    long millis = step.toMillis();
+    if (millis <= 0 || millis % stepMillis != 0) {
+      throw new IllegalArgumentException("The step of a metric must be a multiple of the step of the registry (" + cloudWatchConfig.step() + "): "
+          + step);
+    }
+    return millis;
+  }
+
+  private long stepMillis(Meter.Id id) {
+    return stepMillisByMetricName.computeIfAbsent(id.getName(), this::resolveStepMillis);
+  }
+
+  private long resolveStepMillis(String metricName) {
+    Long millis = requestedStepMillis.get(metricName);
+    if (millis == null) {
+      millis = stepMillis;
+      for (StepTier stepTier : stepTiers) {
+        if (stepTier.matches(metricName)) {
+          millis = stepTier.stepMillis;
+          break;
+        }
+      }
+    }
+    if (millis != stepMillis) {
+      tiered = true;
+    }
+    return millis;
+  }
+
+  /**
+   * Number of steps of the registry per step of the meter. Meters of a step tier are only published once a step of the tier has completed.
+   */
+  private long stepMultiple(Meter meter) {
+    if (!tiered) {
+      return 1;
+    }
+    Long meterStepMillis = stepMillisByMetricName.get(meter.getId().getName());
+    return meterStepMillis == null ? 1 : meterStepMillis / stepMillis;
+  }
+
+  // synthetic gauges (E.g. percentiles of a timer) are idle when the meter they belong to is, which may come later in the iteration
+  private void collectIdleMeterIds(List<Meter> meters) {
+    idleMeterIds.clear();
+    for (Meter meter : meters) {
+      if (meter.getId().syntheticAssociation() == null && isIdle(meter)) {
+        idleMeterIds.add(meter.getId());
+      }
+    }
+  }
+
+  private boolean isIdle(Meter meter) {
+    Meter.Id association = meter.getId().syntheticAssociation();
+    if (association != null) {
+      return idleMeterIds.contains(association);
+    }
+    if (meter instanceof Counter) {
+      return ((Counter) meter).count() == 0;
+    }
+    if (meter instanceof Timer) {
+      return ((Timer) meter).count() == 0;
+    }
+    if (meter instanceof DistributionSummary) {
+      return ((DistributionSummary) meter).count() == 0;
+    }
+    if (meter instanceof FunctionCounter) {
+      return ((FunctionCounter) meter).count() == 0;
+    }
+    if (meter instanceof FunctionTimer) {
+      return ((FunctionTimer) meter).count() == 0;
+    }
+    // other gauges have a value rather than activity
+    return false;
+  }
+
+  private boolean isHighResolution(String metricName) {
+    if (highResolutionMetricNames.contains(metricName)) {
+      return true;
+    }
+    for (Pattern pattern : highResolutionPatterns) {
+      if (pattern.matcher(metricName).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  protected TimeUnit getBaseTimeUnit() {
+    return TimeUnit.MILLISECONDS;
+  }
+
+  @Override
+  protected Timer newTimer(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector) {
+    Timer timer;
+    long stepMillis = stepMillis(id);
+    if (stepMillis % 1000 == 0 && isHighResolution(id.getName())) {
+      timer = new HighResolutionTimer(id, clock, distributionStatisticConfig, pauseDetector, getBaseTimeUnit(), stepMillis);
+    } else if (sketchMetricNames.contains(id.getName())) {
+      timer = new SketchTimer(id, clock, distributionStatisticConfig, pauseDetector, getBaseTimeUnit(), stepMillis, buckets);
+    } else if (timerEncoding == TimerEncoding.STATISTIC_SET) {
+      timer = new StepMinTimer(id, clock, distributionStatisticConfig, pauseDetector, getBaseTimeUnit(), stepMillis);
+    } else {
+      timer = new IdleAwareStepTimer(id, clock, distributionStatisticConfig, pauseDetector, getBaseTimeUnit(), stepMillis);
+    }
+    HistogramGauges.registerWithCommonFormat(timer, this);
+    return timer;
+  }
+
+  // the other step meters are created like StepMeterRegistry does, with the step of their tier and aware of being idle
+
+  @Override
+  protected Counter newCounter(Meter.Id id) {
+    return new IdleAwareStepCounter(id, clock, stepMillis(id));
+  }
+
+  @Override
+  protected DistributionSummary newDistributionSummary(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, double scale) {
+    DistributionSummary summary = new IdleAwareStepDistributionSummary(id, clock, distributionStatisticConfig, scale, stepMillis(id));
+    HistogramGauges.registerWithCommonFormat(summary, this);
+    return summary;
+  }
+
+  @Override
+  protected <T> FunctionTimer newFunctionTimer(Meter.Id id, T obj, ToLongFunction<T> countFunction, ToDoubleFunction<T> totalTimeFunction,
+      TimeUnit totalTimeFunctionUnit) {
+    return new StepFunctionTimer<>(id, clock, stepMillis(id), obj, countFunction, totalTimeFunction, totalTimeFunctionUnit, getBaseTimeUnit());
+  }
+
+  @Override
+  protected <T> FunctionCounter newFunctionCounter(Meter.Id id, T obj, ToDoubleFunction<T> countFunction) {
+    return new StepFunctionCounter<>(id, clock, stepMillis(id), obj, countFunction);
+  }
+
+  @Override
+  protected void publish() {
+    long wallTime = clock.wallTime();
+    long step = wallTime / stepMillis;
+    publisher.beginStep(wallTime);
+    List<Meter> meters = getMeters();
+    if (skipIdleSeries) {
+      collectIdleMeterIds(meters);
+    }
+    for (Meter meter : meters) {
+      long stepMultiple = stepMultiple(meter);
+      if (step % stepMultiple != 0) {
+        continue;
+      }
+      // step meters return the same values until the next step, so checking them before publishing does not consume them
+      if (skipIdleSeries && (heartbeatSteps <= 0 || step / stepMultiple % heartbeatSteps != 0) && isIdle(meter)) {
+        continue;
+      }
+      try {
+        publish(meter, getConventionName(meter.getId()), toDimensionTags(meter.getId()));
+      } catch (RuntimeException e) {
+        log.warn("Failed to publish {}", meter.getId(), e);
+      }
+    }
+    publisher.endStep();
+    idleMeterIds.clear();
+    IdleMeterSweeper sweeper = idleMeterSweeper;
+    if (sweeper != null) {
+      try {
+        sweeper.sweep();
+      } catch (RuntimeException e) {
+        log.warn("Failed to remove idle meters", e);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      super.close();
+    } finally {
+      publisher.close();
+    }
+  }
+
+  // an instanceof chain rather than Meter#use, which would allocate its lambdas for every meter
+  private void publish(Meter meter, String name, List<Tag> tags) {
+    if (meter instanceof TimeGauge) {
+      TimeGauge timeGauge = (TimeGauge) meter;
+      add(name, ".value", tags, BASE_TIME_UNIT, timeGauge.value(getBaseTimeUnit()));
+    } else if (meter instanceof Gauge) {
+      add(name, ".value", tags, toStandardUnit(meter.getId().getBaseUnit()), ((Gauge) meter).value());
+    } else if (meter instanceof Counter) {
+      add(name, ".count", tags, StandardUnit.COUNT, ((Counter) meter).count());
+    } else if (meter instanceof Timer) {
+      publishTimer((Timer) meter, name, tags);
+    } else if (meter instanceof DistributionSummary) {
+      publishSummary((DistributionSummary) meter, name, tags);
+    } else if (meter instanceof LongTaskTimer) {
+      LongTaskTimer longTaskTimer = (LongTaskTimer) meter;
+      add(name, ".activeTasks", tags, StandardUnit.COUNT, longTaskTimer.activeTasks());
+      add(name, ".duration", tags, BASE_TIME_UNIT, longTaskTimer.duration(getBaseTimeUnit()));
+    } else if (meter instanceof FunctionCounter) {
+      add(name, ".count", tags, StandardUnit.COUNT, ((FunctionCounter) meter).count());
+    } else if (meter instanceof FunctionTimer) {
+      publishFunctionTimer((FunctionTimer) meter, name, tags);
+    } else {
+      for (Measurement measurement : meter.measure()) {
+        add(name, "", toDimensionTags(meter.getId().withTag(measurement.getStatistic())), StandardUnit.NONE, measurement.getValue());
+      }
+    }
+  }
+
+  private void publishTimer(Timer timer, String name, List<Tag> tags) {
+    if (timer instanceof HighResolutionTimer) {
+      publishHighResolution((HighResolutionTimer) timer, name, tags);
+      return;
+    }
+    if (timerEncoding == TimerEncoding.STATISTIC_SET) {
+      publishStatisticSet(timer, name, tags);
+    } else {
+      StandardUnit unit = BASE_TIME_UNIT;
+      long count = timer.count();
+      add(name, ".sum", tags, unit, timer.totalTime(getBaseTimeUnit()));
+      add(name, ".count", tags, StandardUnit.COUNT, count);
+      if (count > 0) {
+        add(name, ".avg", tags, unit, timer.mean(getBaseTimeUnit()));
+        add(name, ".max", tags, unit, timer.max(getBaseTimeUnit()));
+      }
+    }
+    if (timer instanceof SketchTimer) {
+      publishDistribution((SketchTimer) timer, name, tags);
+    }
+  }
+
+  private void publishStatisticSet(Timer timer, String name, List<Tag> tags) {
+    double min = timer instanceof StepMinTimer ? ((StepMinTimer) timer).pollMin(getBaseTimeUnit()) : Double.NaN;
+    long count = timer.count();
+    // CloudWatch rejects statistic sets without samples
+    if (count == 0) {
+      return;
+    }
+    double max = timer.max(getBaseTimeUnit());
+    // the minimum can be missing when a recording raced with the end of the step
+    double minimum = Double.isNaN(min) ? Math.min(timer.mean(getBaseTimeUnit()), max) : Math.min(min, max);
+    publisher.addStatisticSet(name, tags, BASE_TIME_UNIT, count, clamp(timer.totalTime(getBaseTimeUnit())), clamp(minimum),
+        clamp(max));
+  }
+
+  private void publishHighResolution(HighResolutionTimer timer, String name, List<Tag> tags) {
+    timer.pollSeconds((timestamp, count, totalNanos, minNanos, maxNanos) -> publisher.addHighResolutionStatisticSet(name, tags, BASE_TIME_UNIT,
+        timestamp, count, clamp(totalNanos / NANOS_PER_MILLI), clamp(minNanos / NANOS_PER_MILLI), clamp(maxNanos / NANOS_PER_MILLI)));
+  }
+
+  private void publishSummary(DistributionSummary summary, String name, List<Tag> tags) {
+    StandardUnit unit = toStandardUnit(summary.getId().getBaseUnit());
+    long count = summary.count();
+    add(name, ".sum", tags, unit, summary.totalAmount());
+    add(name, ".count", tags, StandardUnit.COUNT, count);
+    if (count > 0) {
+      add(name, ".avg", tags, unit, summary.mean());
+      add(name, ".max", tags, unit, summary.max());
+    }
+  }
+
+  private void publishFunctionTimer(FunctionTimer functionTimer, String name, List<Tag> tags) {
+    StandardUnit unit = BASE_TIME_UNIT;
+    double count = functionTimer.count();
+    add(name, ".count", tags, StandardUnit.COUNT, count);
+    add(name, ".sum", tags, unit, functionTimer.totalTime(getBaseTimeUnit()));
+    if (count > 0) {
+      add(name, ".avg", tags, unit, functionTimer.mean(getBaseTimeUnit()));
+    }
+  }
+
+  private void publishDistribution(SketchTimer timer, String name, List<Tag> tags) {
+    long[] counts = timer.pollBucketCounts();
+    String metricName = name + DISTRIBUTION_SUFFIX;
+    int length = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] == 0) {
+        continue;
+      }
+      distributionValues[length] = buckets.representativeValue(i) / NANOS_PER_MILLI;
+      distributionCounts[length] = counts[i];
+      length++;
+      if (length == MAX_VALUES_PER_DATUM) {
+        publisher.addDistribution(metricName, tags, StandardUnit.MILLISECONDS, distributionValues, distributionCounts, length);
+        length = 0;
+      }
+    }
+    if (length > 0) {
+      publisher.addDistribution(metricName, tags, StandardUnit.MILLISECONDS, distributionValues, distributionCounts, length);
+    }
+  }
+
+  private void add(String name, String suffix, List<Tag> tags, StandardUnit unit, double value) {
+    // CloudWatch rejects values that are not a number
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      return;
+    }
+    publisher.add(name, suffix, tags, unit, clamp(value));
+  }
+
+  private List<Tag> toDimensionTags(Meter.Id id) {
+    List<Tag> conventionTags = getConventionTags(id);
+    List<Tag> tags = new ArrayList<>(conventionTags.size());
+    for (Tag tag : conventionTags) {
+      // CloudWatch rejects dimensions without a value
+      if (StringUtils.isNotBlank(tag.getValue())) {
+        tags.add(tag);
+      }
+    }
+    return tags;
+  }
+
+  private static StandardUnit toStandardUnit(String unit) {
+    if (unit == null) {
+      return StandardUnit.NONE;
+    }
+    StandardUnit standardUnit = STANDARD_UNITS_BY_NAME.get(unit);
+    return standardUnit != null ? standardUnit : STANDARD_UNITS_BY_NAME.getOrDefault(unit.toLowerCase(Locale.ROOT), StandardUnit.NONE);
+  }
+
+  private static double clamp(double value) {
+    double absoluteValue = Math.abs(value);
+    if (absoluteValue == 0 || absoluteValue >= MIN_ABSOLUTE_VALUE && absoluteValue <= MAX_ABSOLUTE_VALUE) {
+      return value;
+    }
+    return Math.copySign(absoluteValue < MIN_ABSOLUTE_VALUE ? MIN_ABSOLUTE_VALUE : MAX_ABSOLUTE_VALUE, value);
+  }
+
+  private static final class StepTier {
+
+    private final long stepMillis;
+    private final List<String> metricNamePrefixes;
+
+    private StepTier(long stepMillis, List<String> metricNamePrefixes) {
+      this.stepMillis = stepMillis;
+      this.metricNamePrefixes = metricNamePrefixes;
+    }
+
+    boolean matches(String metricName) {
+      for (String prefix : metricNamePrefixes) {
+        if (metricName.startsWith(prefix)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.arthur.metrics.internal.registry;
+
+/**
+ * Bucket layout of a base-2 exponential histogram: bucket <code>i</code> covers the values in
+ * <code>(min * 2^(i / 2^scale), min * 2^((i + 1) / 2^scale)]</code>, so every bucket has the same relative width. Values outside of the range are
+ * clamped into the first or last bucket.
+ * <p>
+ * The layout only depends on configuration, so the bucket counts of all instances of an application can be merged by adding them up.
+ */
+final class Base2ExponentialBuckets {
+
+  static final int MAX_SCALE = 10;
+
+  private final double minValue;
+  private final int scale;
+  private final int bucketCount;
+  // 2^scale / ln(2), so that the index is derived with a single logarithm
+  private final double indexFactor;
+
+  private Base2ExponentialBuckets(double minValue, int scale, int bucketCount) {
+    this.minValue = minValue;
+    this.scale = scale;
+    this.bucketCount = bucketCount;
+    this.indexFactor = Math.scalb(1d, scale) / Math.log(2);
+  }
+
+  /**
+   * Uses the highest resolution (scale) at which the range fits into the given number of buckets.
+   */
+  static Base2ExponentialBuckets of(double minValue, double maxValue, int maxBuckets) {
+    if (minValue <= 0 || maxValue <= minValue || maxBuckets <= 0) {
+      throw new IllegalArgumentException(String.format("Invalid histogram range (%s, %s] with %d buckets", minValue, maxValue, maxBuckets));
+    }
+    double octaves = Math.log(maxValue / minValue) / Math.log(2);
+    int scale = MAX_SCALE;
+    while (scale > 0 && Math.ceil(octaves * Math.scalb(1d, scale)) > maxBuckets) {
+      scale--;
+    }
+    int bucketCount = (int) Math.min(maxBuckets, Math.max(1, Math.ceil(octaves * Math.scalb(1d, scale))));
+    return new Base2ExponentialBuckets(minValue, scale, bucketCount);
+  }
+
+  int index(double value) {
+    if (value <= minValue) {
+      return 0;
+    }
+    int index = (int) Math.ceil(Math.log(value / minValue) * indexFactor) - 1;
+    return Math.max(0, Math.min(bucketCount - 1, index));
+  }
+
+  /**
+   * Geometric mean of the bounds of the bucket, which minimizes the maximum relative error of the values in the bucket.
+   */
+  double representativeValue(int index) {
+    return minValue * Math.pow(2, (index + 0.5) / Math.scalb(1d, scale));
+  }
+
+  int bucketCount() {
+    return bucketCount;
+  }
+
+  int scale() {
+    return scale;
+  }
+}
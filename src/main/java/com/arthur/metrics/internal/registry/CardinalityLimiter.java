@@ -0,0 +1,127 @@
+package com.arthur.metrics.internal.registry;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.CardinalityConfig;
+import com.arthur.metrics.internal.BoundedCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.config.MeterFilter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Limits the number of distinct tag sets per metric name. Once the limit of a metric is reached, meters with a new tag set are mapped to a single
+ * overflow series, in which every tag apart from the base tags (E.g. <code>Application Name</code>) has the value {@value #OVERFLOW_TAG_VALUE}.
+ * <p>
+ * The number of distinct tag sets that were collapsed is published per metric name as {@value #OVERFLOW_METRIC_NAME}. Collapsed tag sets are
+ * remembered up to the limit of the metric, so that looking up the same meter again (E.g. once per request) is not counted again. A tag set that has
+ * been forgotten is counted again.
+ */
+@Log4j2
+public class CardinalityLimiter implements MeterFilter {
+
+  public static final String OVERFLOW_TAG_VALUE = "__overflow__";
+  public static final String OVERFLOW_METRIC_NAME = "metrics.cardinality.overflow";
+  public static final String TAG_METRIC_NAME = "Metric Name";
+
+  private final MeterRegistry meterRegistry;
+  private final int maxTagSetsPerMetric;
+  private final Map<String, Integer> metricLimits;
+  private final Set<String> baseTagKeys;
+  private final ConcurrentMap<String, MetricCardinality> metrics = new ConcurrentHashMap<>();
+
+  public CardinalityLimiter(MeterRegistry meterRegistry, CardinalityConfig cardinalityConfig, Set<String> baseTagKeys) {
+    this.meterRegistry = meterRegistry;
+    this.maxTagSetsPerMetric = cardinalityConfig.getMaxTagSetsPerMetric();
+    this.metricLimits = Map.copyOf(cardinalityConfig.getMetricLimits());
+    this.baseTagKeys = Set.copyOf(baseTagKeys);
+  }
+
+  @Override
+  public Meter.Id map(Meter.Id id) {
+    // synthetic meters (E.g. percentiles of a timer) follow the tags of the meter they belong to
+    if (OVERFLOW_METRIC_NAME.equals(id.getName()) || id.syntheticAssociation() != null) {
+      return id;
+    }
+    MetricCardinality metricCardinality = metrics.get(id.getName());
+    if (metricCardinality == null) {
+      metricCardinality = metrics.computeIfAbsent(id.getName(), name -> new MetricCardinality(metricLimits.getOrDefault(name, maxTagSetsPerMetric)));
+    }
+    return metricCardinality.tryAdd(id) ? id : collapse(id, metricCardinality);
+  }
+
+  /**
+   * Releases the slot of a meter that was removed from the registry, so that it no longer counts towards the limit.
+   */
+  public void forget(Meter meter) {
+    MetricCardinality metricCardinality = metrics.get(meter.getId().getName());
+    if (metricCardinality != null && metricCardinality.ids.remove(meter.getId())) {
+      metricCardinality.size.decrementAndGet();
+    }
+  }
+
+  private Meter.Id collapse(Meter.Id id, MetricCardinality metricCardinality) {
+    List<Tag> overflowTags = new ArrayList<>(id.getTags().size());
+    List<Tag> retainedTags = new ArrayList<>(baseTagKeys.size());
+    for (Tag tag : id.getTagsAsIterable()) {
+      if (baseTagKeys.contains(tag.getKey())) {
+        overflowTags.add(tag);
+        retainedTags.add(tag);
+      } else {
+        overflowTags.add(Tag.of(tag.getKey(), OVERFLOW_TAG_VALUE));
+      }
+    }
+    if (metricCardinality.collapsedIds.get(id) != null) {
+      return id.replaceTags(overflowTags);
+    }
+    metricCardinality.collapsedIds.put(id, Boolean.TRUE);
+    if (metricCardinality.collapsed.getAndIncrement() == 0) {
+      log.warn("Metric '{}' exceeded the limit of {} distinct tag sets, new tag sets are collapsed into the {} series", id.getName(),
+          metricCardinality.limit, OVERFLOW_TAG_VALUE);
+      FunctionCounter.builder(OVERFLOW_METRIC_NAME, metricCardinality.collapsed, AtomicLong::get)
+          .tags(Tags.of(retainedTags).and(TAG_METRIC_NAME, id.getName()))
+          .description("Number of distinct tag sets collapsed into the overflow series")
+          .register(meterRegistry);
+    }
+    return id.replaceTags(overflowTags);
+  }
+
+  private static final class MetricCardinality {
+
+    private final int limit;
+    private final Set<Meter.Id> ids = ConcurrentHashMap.newKeySet();
+    // tracked separately, as ConcurrentHashMap#size() sums up all counter cells
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong collapsed = new AtomicLong();
+    private final BoundedCache<Meter.Id, Boolean> collapsedIds;
+
+    private MetricCardinality(int limit) {
+      this.limit = limit;
+      this.collapsedIds = new BoundedCache<>(Math.max(limit, 1));
+    }
+
+    private boolean tryAdd(Meter.Id id) {
+      if (limit <= 0 || ids.contains(id)) {
+        return true;
+      }
+      if (size.incrementAndGet() > limit) {
+        size.decrementAndGet();
+        return false;
+      }
+      if (!ids.add(id)) {
+        // added by a racing thread
+        size.decrementAndGet();
+      }
+      return true;
+    }
+  }
+}
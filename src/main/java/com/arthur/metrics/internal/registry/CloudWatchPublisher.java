@@ -0,0 +1,425 @@
+package com.arthur.metrics.internal.registry;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.PublisherConfig;
+import com.arthur.metrics.internal.monitoring.SelfMetrics;
+import io.micrometer.core.instrument.Tag;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.log4j.Log4j2;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
+
+/**
+ * Sends metric data with as few <code>PutMetricData</code> requests as the API limits allow: a request is filled up to
+ * {@link PublisherConfig#getMaxDatumsPerRequest()} datums or {@link PublisherConfig#getMaxRequestSizeInBytes()}, whichever is reached first. Requests
+ * are sent concurrently, with at most {@link PublisherConfig#getMaxInFlightRequests()} requests in flight.
+ * <p>
+ * The size of a request is estimated from its form encoded (query protocol) parameters, E.g.
+ * <code>MetricData.member.12.Dimensions.member.3.Value=...</code>.
+ * <p>
+ * With a {@link MetricSpool}, requests that failed for a transient reason (throttling, server errors, network failures) or could not be sent in time
+ * are spooled, and replayed with their original timestamps once a step has been published successfully again.
+ * <p>
+ * With an {@link AdaptiveRateLimiter}, every request waits for the limiter, which learns from the responses whether CloudWatch throttles them.
+ * <p>
+ * With {@link SelfMetrics}, the duration of publishing a step, the requests sent and the metric data that failed or were dropped are measured.
+ */
+@Log4j2
+public class CloudWatchPublisher implements MetricDataPublisher {
+
+  // Action, Version and Namespace parameters
+  private static final int REQUEST_OVERHEAD_BYTES = 128;
+  // name of the longest parameter, E.g. "&MetricData.member.1000.Dimensions.member.30.Value="
+  private static final int PARAMETER_OVERHEAD_BYTES = 52;
+  // formatted double or timestamp
+  private static final int NUMBER_BYTES = 24;
+  // seconds
+  private static final int HIGH_STORAGE_RESOLUTION = 1;
+  // CloudWatch rejects older timestamps
+  static final Duration MAX_REPLAY_AGE = Duration.ofDays(14);
+
+  private final CloudWatchAsyncClient cloudWatchAsyncClient;
+  private final String namespace;
+  private final int maxDatumsPerRequest;
+  private final int maxRequestSizeInBytes;
+  private final Semaphore inFlightRequests;
+  private final Duration timeout;
+  private final MetricSpool spool;
+  private final AdaptiveRateLimiter rateLimiter;
+  private final SelfMetrics selfMetrics;
+  private final int maxReplayedRequestsPerStep;
+  // metric data of the current step
+  private final List<MetricDatum> metricData = new ArrayList<>();
+  private Instant timestamp;
+  private List<Tag> previousTags;
+  private List<Dimension> previousDimensions;
+  // completes once a replayed request that outlived its step has completed, only accessed by the publishing thread
+  private CompletableFuture<Void> pendingReplay;
+
+  /**
+   * @param timeout Maximum duration of publishing the metric data of a step, usually the step itself
+   */
+  public CloudWatchPublisher(CloudWatchAsyncClient cloudWatchAsyncClient, String namespace, PublisherConfig publisherConfig, Duration timeout) {
+    this(cloudWatchAsyncClient, namespace, publisherConfig, timeout, null, null, null);
+  }
+
+  /**
+   * @param spool       Spool for requests that failed, or <code>null</code> to drop them
+   * @param rateLimiter Limiter of the request rate, or <code>null</code> for no limit
+   * @param selfMetrics Measurements of publishing, or <code>null</code> when the library does not measure itself
+   */
+  public CloudWatchPublisher(CloudWatchAsyncClient cloudWatchAsyncClient, String namespace, PublisherConfig publisherConfig, Duration timeout,
+      MetricSpool spool, AdaptiveRateLimiter rateLimiter, SelfMetrics selfMetrics) {
+    if (publisherConfig.getMaxDatumsPerRequest() <= 0 || publisherConfig.getMaxInFlightRequests() <= 0) {
+      throw new IllegalArgumentException("maxDatumsPerRequest and maxInFlightRequests must be greater than 0");
+    }
+    this.cloudWatchAsyncClient = cloudWatchAsyncClient;
+    this.namespace = namespace;
+    this.maxDatumsPerRequest = publisherConfig.getMaxDatumsPerRequest();
+    this.maxRequestSizeInBytes = publisherConfig.getMaxRequestSizeInBytes();
+    this.inFlightRequests = new Semaphore(publisherConfig.getMaxInFlightRequests());
+    this.timeout = timeout;
+    this.spool = spool;
+    this.rateLimiter = rateLimiter;
+    this.selfMetrics = selfMetrics;
+    this.maxReplayedRequestsPerStep = publisherConfig.getSpool().getMaxReplayedRequestsPerStep();
+  }
+
+  @Override
+  public void beginStep(long timestamp) {
+    this.timestamp = Instant.ofEpochMilli(timestamp);
+  }
+
+  @Override
+  public void add(String metricName, String suffix, List<Tag> tags, StandardUnit unit, double value) {
+    metricData.add(MetricDatum.builder()
+        .metricName(metricName + suffix)
+        .dimensions(toDimensions(tags))
+        .timestamp(timestamp)
+        .unit(unit)
+        .value(value)
+        .build());
+  }
+
+  @Override
+  public void addStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, double sampleCount, double sum, double minimum, double maximum) {
+    metricData.add(MetricDatum.builder()
+        .metricName(metricName)
+        .dimensions(toDimensions(tags))
+        .timestamp(timestamp)
+        .unit(unit)
+        .statisticValues(StatisticSet.builder().sampleCount(sampleCount).sum(sum).minimum(minimum).maximum(maximum).build())
+        .build());
+  }
+
+  @Override
+  public void addHighResolutionStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, long timestamp, double sampleCount, double sum,
+      double minimum, double maximum) {
+    metricData.add(MetricDatum.builder()
+        .metricName(metricName)
+        .dimensions(toDimensions(tags))
+        .timestamp(Instant.ofEpochMilli(timestamp))
+        .unit(unit)
+        .statisticValues(StatisticSet.builder().sampleCount(sampleCount).sum(sum).minimum(minimum).maximum(maximum).build())
+        .storageResolution(HIGH_STORAGE_RESOLUTION)
+        .build());
+  }
+
+  @Override
+  public void addDistribution(String metricName, List<Tag> tags, StandardUnit unit, double[] values, double[] counts, int length) {
+    List<Double> datumValues = new ArrayList<>(length);
+    List<Double> datumCounts = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      datumValues.add(values[i]);
+      datumCounts.add(counts[i]);
+    }
+    metricData.add(MetricDatum.builder()
+        .metricName(metricName)
+        .dimensions(toDimensions(tags))
+        .timestamp(timestamp)
+        .unit(unit)
+        .values(datumValues)
+        .counts(datumCounts)
+        .build());
+  }
+
+  @Override
+  public void endStep() {
+    long startNanos = System.nanoTime();
+    try {
+      // replaying gets whatever time is left of the step
+      long deadline = startNanos + timeout.toNanos();
+      if (publish(metricData, deadline) && spool != null && spool.size() > 0) {
+        replay(deadline);
+      }
+    } finally {
+      if (selfMetrics != null) {
+        selfMetrics.recordPublish(System.nanoTime() - startNanos);
+      }
+      metricData.clear();
+      previousTags = null;
+      previousDimensions = null;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (spool != null) {
+      spool.close();
+    }
+  }
+
+  private List<Dimension> toDimensions(List<Tag> tags) {
+    // consecutive data of the same meter share their tags
+    if (tags != previousTags) {
+      List<Dimension> dimensions = new ArrayList<>(tags.size());
+      for (Tag tag : tags) {
+        dimensions.add(Dimension.builder().name(tag.getKey()).value(tag.getValue()).build());
+      }
+      previousTags = tags;
+      previousDimensions = dimensions;
+    }
+    return previousDimensions;
+  }
+
+  /**
+   * Sends the metric data and waits until all requests have completed, or the timeout has elapsed. Failed requests are logged, and spooled if
+   * they can be replayed.
+   *
+   * @return <code>true</code> if all requests were sent successfully
+   */
+  boolean publish(List<MetricDatum> metricData, Duration timeout) {
+    return publish(metricData, System.nanoTime() + timeout.toNanos());
+  }
+
+  private boolean publish(List<MetricDatum> metricData, long deadline) {
+    List<List<MetricDatum>> batches = new ArrayList<>();
+    List<MetricDatum> batch = new ArrayList<>();
+    long batchSize = REQUEST_OVERHEAD_BYTES;
+    for (MetricDatum datum : metricData) {
+      int datumSize = estimateSize(datum);
+      if (!batch.isEmpty() && (batch.size() == maxDatumsPerRequest || batchSize + datumSize > maxRequestSizeInBytes)) {
+        batches.add(batch);
+        batch = new ArrayList<>();
+        batchSize = REQUEST_OVERHEAD_BYTES;
+      }
+      batch.add(datum);
+      batchSize += datumSize;
+    }
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+    List<CompletableFuture<Void>> responses = new ArrayList<>(batches.size());
+    int sent = 0;
+    try {
+      for (; sent < batches.size(); sent++) {
+        responses.add(send(batches.get(sent), deadline, true));
+      }
+      CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      return true;
+    } catch (TimeoutException e) {
+      log.error("Publishing {} metric data to CloudWatch did not complete within {}", metricData.size(), timeout);
+      spoolOrDrop(batches.subList(sent, batches.size()));
+    } catch (ExecutionException e) {
+      // failures are logged per request
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      spoolOrDrop(batches.subList(sent, batches.size()));
+    }
+    return false;
+  }
+
+  /**
+   * Sends the oldest spooled requests one by one, until one fails, the deadline has passed or the limit per step is reached.
+   */
+  private void replay(long deadline) {
+    if (pendingReplay != null && !pendingReplay.isDone()) {
+      return;
+    }
+    pendingReplay = null;
+    Instant oldestTimestamp = Instant.now().minus(MAX_REPLAY_AGE);
+    int replayed = 0;
+    try {
+      for (int i = 0; i < maxReplayedRequestsPerStep; i++) {
+        MetricSpool.Batch batch = spool.peek();
+        if (batch == null) {
+          break;
+        }
+        List<MetricDatum> metricData = decode(batch);
+        if (metricData == null || metricData.get(0).timestamp() != null && metricData.get(0).timestamp().isBefore(oldestTimestamp)) {
+          spool.remove(batch);
+          continue;
+        }
+        CompletableFuture<Void> response = send(metricData, deadline, false);
+        try {
+          response.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+          if (isReplayable(e.getCause())) {
+            break;
+          }
+        } catch (TimeoutException | InterruptedException e) {
+          // the request may still succeed, so the batch is removed once it does rather than being sent again with the next step
+          pendingReplay = response.whenComplete((ignored, error) -> {
+            if (error == null || !isReplayable(error)) {
+              spool.remove(batch);
+            }
+          });
+          if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+          }
+          break;
+        }
+        // sent, or rejected for good
+        spool.remove(batch);
+        replayed++;
+      }
+    } catch (TimeoutException e) {
+      // not sent, replayed again with the next step
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (replayed > 0) {
+      log.info("Replayed {} spooled requests to CloudWatch, {} are left", replayed, spool.size());
+    }
+  }
+
+  private List<MetricDatum> decode(MetricSpool.Batch batch) {
+    try {
+      List<MetricDatum> metricData = MetricDatumCodec.decode(batch.getBytes());
+      return metricData.isEmpty() ? null : metricData;
+    } catch (IOException e) {
+      log.warn("Discarding a spooled request that cannot be read", e);
+      return null;
+    }
+  }
+
+  private void spoolOrDrop(List<List<MetricDatum>> batches) {
+    for (List<MetricDatum> batch : batches) {
+      boolean spooled = spool != null && spool(batch);
+      recordFailedDatums(batch.size(), !spooled);
+    }
+  }
+
+  private boolean spool(List<MetricDatum> batch) {
+    if (!spool.append(MetricDatumCodec.encode(batch))) {
+      log.error("Failed to spool {} metric data, as they exceed the size of the spool", batch.size());
+      return false;
+    }
+    return true;
+  }
+
+  private void recordFailedDatums(int datumCount, boolean dropped) {
+    if (selfMetrics != null) {
+      selfMetrics.recordFailedDatums(datumCount, dropped);
+    }
+  }
+
+  static boolean isReplayable(Throwable error) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    if (cause instanceof AwsServiceException) {
+      AwsServiceException serviceException = (AwsServiceException) cause;
+      return serviceException.isThrottlingException() || serviceException.statusCode() >= 500;
+    }
+    return cause instanceof SdkClientException;
+  }
+
+  private static boolean isThrottling(Throwable error) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    return cause instanceof AwsServiceException && ((AwsServiceException) cause).isThrottlingException();
+  }
+
+  private CompletableFuture<Void> send(List<MetricDatum> batch, long deadline, boolean spoolOnFailure) throws InterruptedException, TimeoutException {
+    if (rateLimiter != null && !rateLimiter.acquire(deadline)) {
+      throw new TimeoutException();
+    }
+    if (!inFlightRequests.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+      throw new TimeoutException();
+    }
+    PutMetricDataRequest request = PutMetricDataRequest.builder()
+        .namespace(namespace)
+        .metricData(batch)
+        .build();
+    if (selfMetrics != null) {
+      long size = REQUEST_OVERHEAD_BYTES;
+      for (MetricDatum datum : batch) {
+        size += estimateSize(datum);
+      }
+      selfMetrics.recordRequest(batch.size(), size);
+    }
+    CompletableFuture<Void> response;
+    try {
+      response = cloudWatchAsyncClient.putMetricData(request).thenApply(ignored -> null);
+    } catch (RuntimeException e) {
+      response = CompletableFuture.failedFuture(e);
+    }
+    return response.whenComplete((ignored, error) -> {
+      inFlightRequests.release();
+      if (rateLimiter != null) {
+        if (error == null) {
+          rateLimiter.onSuccess();
+        } else if (isThrottling(error)) {
+          rateLimiter.onThrottled();
+        }
+      }
+      if (error == null) {
+        return;
+      }
+      if (spoolOnFailure && spool != null && isReplayable(error)) {
+        log.error("Failed to send {} metric data to CloudWatch, spooled them to be replayed", batch.size(), error);
+        recordFailedDatums(batch.size(), !spool(batch));
+      } else {
+        log.error("Failed to send {} metric data to CloudWatch", batch.size(), error);
+        // replayed requests stay in the spool if they can be replayed again
+        recordFailedDatums(batch.size(), spoolOnFailure || !isReplayable(error));
+      }
+    });
+  }
+
+  static int estimateSize(MetricDatum datum) {
+    int size = parameterSize(datum.metricName()) + PARAMETER_OVERHEAD_BYTES + NUMBER_BYTES;
+    if (datum.unit() != null) {
+      size += parameterSize(datum.unitAsString());
+    }
+    for (Dimension dimension : datum.dimensions()) {
+      size += parameterSize(dimension.name()) + parameterSize(dimension.value());
+    }
+    if (datum.value() != null) {
+      size += PARAMETER_OVERHEAD_BYTES + NUMBER_BYTES;
+    }
+    if (datum.statisticValues() != null) {
+      size += 4 * (PARAMETER_OVERHEAD_BYTES + NUMBER_BYTES);
+    }
+    size += (datum.values().size() + datum.counts().size()) * (PARAMETER_OVERHEAD_BYTES + NUMBER_BYTES);
+    if (datum.storageResolution() != null) {
+      size += PARAMETER_OVERHEAD_BYTES + NUMBER_BYTES;
+    }
+    return size;
+  }
+
+  private static int parameterSize(String value) {
+    int size = PARAMETER_OVERHEAD_BYTES + value.length();
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_' || c == '.' || c == '~')) {
+        // percent encoded, multi byte characters are encoded as up to 4 escapes of 3 characters
+        size += c < 0x80 ? 2 : 11;
+      }
+    }
+    return size;
+  }
+}
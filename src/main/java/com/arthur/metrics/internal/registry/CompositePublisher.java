@@ -0,0 +1,78 @@
+package com.arthur.metrics.internal.registry;
+
+import io.micrometer.core.instrument.Tag;
+import java.util.List;
+import lombok.extern.log4j.Log4j2;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+/**
+ * Hands the metric data of each step to several publishers, usually {@link TargetPublisher}s.
+ */
+@Log4j2
+public class CompositePublisher implements MetricDataPublisher {
+
+  private final MetricDataPublisher[] publishers;
+
+  public CompositePublisher(List<? extends MetricDataPublisher> publishers) {
+    this.publishers = publishers.toArray(new MetricDataPublisher[0]);
+  }
+
+  @Override
+  public void beginStep(long timestamp) {
+    for (MetricDataPublisher publisher : publishers) {
+      publisher.beginStep(timestamp);
+    }
+  }
+
+  @Override
+  public void add(String metricName, String suffix, List<Tag> tags, StandardUnit unit, double value) {
+    for (MetricDataPublisher publisher : publishers) {
+      publisher.add(metricName, suffix, tags, unit, value);
+    }
+  }
+
+  @Override
+  public void addStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, double sampleCount, double sum, double minimum, double maximum) {
+    for (MetricDataPublisher publisher : publishers) {
+      publisher.addStatisticSet(metricName, tags, unit, sampleCount, sum, minimum, maximum);
+    }
+  }
+
+  @Override
+  public void addHighResolutionStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, long timestamp, double sampleCount, double sum,
+      double minimum, double maximum) {
+    for (MetricDataPublisher publisher : publishers) {
+      publisher.addHighResolutionStatisticSet(metricName, tags, unit, timestamp, sampleCount, sum, minimum, maximum);
+    }
+  }
+
+  @Override
+  public void addDistribution(String metricName, List<Tag> tags, StandardUnit unit, double[] values, double[] counts, int length) {
+    for (MetricDataPublisher publisher : publishers) {
+      publisher.addDistribution(metricName, tags, unit, values, counts, length);
+    }
+  }
+
+  @Override
+  public void endStep() {
+    // a failing publisher must not keep the others from publishing
+    for (MetricDataPublisher publisher : publishers) {
+      try {
+        publisher.endStep();
+      } catch (RuntimeException e) {
+        log.warn("Failed to publish metrics with {}", publisher, e);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    for (MetricDataPublisher publisher : publishers) {
+      try {
+        publisher.close();
+      } catch (RuntimeException e) {
+        log.warn("Failed to close {}", publisher, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package com.arthur.metrics.internal.registry;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.EmfConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.EmfOutput;
+import io.micrometer.core.instrument.Tag;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import lombok.extern.log4j.Log4j2;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+/**
+ * Writes metric data as CloudWatch embedded metric format (EMF) log events, one JSON line per meter, from which CloudWatch Logs extracts the metrics.
+ * No CloudWatch API is called, so publishing is neither throttled nor charged per request.
+ * <p>
+ * Lines are serialized into a buffer that is reused for every line, so that writing a datum does not allocate. EMF has no statistic sets and no value
+ * counts: statistic sets are written as <code>.count</code>, <code>.sum</code>, <code>.min</code> and <code>.max</code>, while distributions are not
+ * written at all. Statistic sets of a single second are written as a line of their own, with the timestamp of the second and a storage resolution of
+ * 1 second.
+ */
+@Log4j2
+public class EmfPublisher implements MetricDataPublisher {
+
+  // limit of metrics per log event
+  static final int MAX_METRICS_PER_LINE = 100;
+
+  private final String namespace;
+  private final OutputStream outputStream;
+  private final StringBuilder line = new StringBuilder(4096);
+  private byte[] lineBytes = new byte[4096];
+  // metrics of the current line, which all have the same tags
+  private final String[] metricNames = new String[MAX_METRICS_PER_LINE];
+  private final String[] suffixes = new String[MAX_METRICS_PER_LINE];
+  private final StandardUnit[] units = new StandardUnit[MAX_METRICS_PER_LINE];
+  private final double[] values = new double[MAX_METRICS_PER_LINE];
+  private int metricCount;
+  private List<Tag> lineTags;
+  private long timestamp;
+  private boolean distributionsSkipped;
+
+  public EmfPublisher(String namespace, EmfConfig emfConfig) {
+    this(namespace, outputStream(emfConfig));
+  }
+
+  EmfPublisher(String namespace, OutputStream outputStream) {
+    this.namespace = namespace;
+    this.outputStream = outputStream;
+  }
+
+  private static OutputStream outputStream(EmfConfig emfConfig) {
+    if (emfConfig.getOutput() == EmfOutput.STDOUT) {
+      // not buffered, so that every line is written at once rather than interleaved with other output
+      return System.out;
+    }
+    try {
+      return new RotatingFileOutputStream(Path.of(emfConfig.getFile()), emfConfig.getMaxFileSizeInBytes(), emfConfig.getMaxFiles());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open " + emfConfig.getFile(), e);
+    }
+  }
+
+  @Override
+  public void beginStep(long timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  @Override
+  public void add(String metricName, String suffix, List<Tag> tags, StandardUnit unit, double value) {
+    if (metricCount > 0 && (tags != lineTags || metricCount == MAX_METRICS_PER_LINE)) {
+      writeLine(timestamp, false);
+    }
+    lineTags = tags;
+    metricNames[metricCount] = metricName;
+    suffixes[metricCount] = suffix;
+    units[metricCount] = unit;
+    values[metricCount] = value;
+    metricCount++;
+  }
+
+  @Override
+  public void addStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, double sampleCount, double sum, double minimum, double maximum) {
+    add(metricName, ".count", tags, StandardUnit.COUNT, sampleCount);
+    add(metricName, ".sum", tags, unit, sum);
+    add(metricName, ".min", tags, unit, minimum);
+    add(metricName, ".max", tags, unit, maximum);
+  }
+
+  @Override
+  public void addHighResolutionStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, long timestamp, double sampleCount, double sum,
+      double minimum, double maximum) {
+    if (metricCount > 0) {
+      writeLine(this.timestamp, false);
+    }
+    addStatisticSet(metricName, tags, unit, sampleCount, sum, minimum, maximum);
+    writeLine(timestamp, true);
+  }
+
+  @Override
+  public void addDistribution(String metricName, List<Tag> tags, StandardUnit unit, double[] values, double[] counts, int length) {
+    if (!distributionsSkipped) {
+      distributionsSkipped = true;
+      log.warn("Distributions (E.g. {}) cannot be written in the embedded metric format and are skipped", metricName);
+    }
+  }
+
+  @Override
+  public void endStep() {
+    if (metricCount > 0) {
+      writeLine(timestamp, false);
+    }
+    try {
+      outputStream.flush();
+    } catch (IOException e) {
+      log.error("Failed to flush metrics", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (outputStream != System.out) {
+      try {
+        outputStream.close();
+      } catch (IOException e) {
+        log.error("Failed to close metrics output", e);
+      }
+    }
+  }
+
+  private void writeLine(long lineTimestamp, boolean highResolution) {
+    line.setLength(0);
+    line.append("{\"_aws\":{\"Timestamp\":").append(lineTimestamp).append(",\"CloudWatchMetrics\":[{\"Namespace\":");
+    appendString(namespace, "");
+    line.append(",\"Dimensions\":[[");
+    for (int i = 0; i < lineTags.size(); i++) {
+      if (i > 0) {
+        line.append(',');
+      }
+      appendString(lineTags.get(i).getKey(), "");
+    }
+    line.append("]],\"Metrics\":[");
+    for (int i = 0; i < metricCount; i++) {
+      if (i > 0) {
+        line.append(',');
+      }
+      line.append("{\"Name\":");
+      appendString(metricNames[i], suffixes[i]);
+      line.append(",\"Unit\":\"").append(units[i].toString()).append('"');
+      if (highResolution) {
+        line.append(",\"StorageResolution\":1");
+      }
+      line.append('}');
+    }
+    line.append("]}]}");
+    for (Tag tag : lineTags) {
+      line.append(',');
+      appendString(tag.getKey(), "");
+      line.append(':');
+      appendString(tag.getValue(), "");
+    }
+    for (int i = 0; i < metricCount; i++) {
+      line.append(',');
+      appendString(metricNames[i], suffixes[i]);
+      line.append(':').append(values[i]);
+    }
+    line.append("}\n");
+    write();
+    metricCount = 0;
+    lineTags = null;
+  }
+
+  private void appendString(String value, String suffix) {
+    line.append('"');
+    appendEscaped(value);
+    appendEscaped(suffix);
+    line.append('"');
+  }
+
+  private void appendEscaped(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        line.append('\\').append(c);
+      } else if (c < 0x20) {
+        line.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+      } else {
+        line.append(c);
+      }
+    }
+  }
+
+  // UTF-8 encodes the line into the reused byte buffer
+  private void write() {
+    int length = 0;
+    for (int i = 0; i < line.length(); i++) {
+      if (lineBytes.length - length < 4) {
+        lineBytes = Arrays.copyOf(lineBytes, lineBytes.length * 2);
+      }
+      int c = line.charAt(i);
+      if (Character.isHighSurrogate((char) c) && i + 1 < line.length() && Character.isLowSurrogate(line.charAt(i + 1))) {
+        c = Character.toCodePoint((char) c, line.charAt(++i));
+      }
+      if (c < 0x80) {
+        lineBytes[length++] = (byte) c;
+      } else if (c < 0x800) {
+        lineBytes[length++] = (byte) (0xC0 | c >> 6);
+        lineBytes[length++] = (byte) (0x80 | c & 0x3F);
+      } else if (c < 0x10000) {
+        lineBytes[length++] = (byte) (0xE0 | c >> 12);
+        lineBytes[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+        lineBytes[length++] = (byte) (0x80 | c & 0x3F);
+      } else {
+        lineBytes[length++] = (byte) (0xF0 | c >> 18);
+        lineBytes[length++] = (byte) (0x80 | c >> 12 & 0x3F);
+        lineBytes[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+        lineBytes[length++] = (byte) (0x80 | c & 0x3F);
+      }
+    }
+    try {
+      outputStream.write(lineBytes, 0, length);
+    } catch (IOException e) {
+      log.error("Failed to write metrics", e);
+    }
+  }
+}
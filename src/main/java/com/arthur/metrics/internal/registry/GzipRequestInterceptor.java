@@ -0,0 +1,120 @@
+package com.arthur.metrics.internal.registry;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.CompressionConfig;
+import com.arthur.metrics.meters.Counter;
+import com.arthur.metrics.service.Metrics;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.http.SdkHttpRequest;
+
+/**
+ * Sends the (form encoded) body of <code>PutMetricData</code> requests gzip compressed, once it is at least
+ * {@link CompressionConfig#getMinRequestSizeInBytes()} long. The dimension names and values repeat for every datum, so the body usually compresses
+ * to a fraction of its size.
+ * <p>
+ * The body is compressed before the request is signed, so the signature covers the compressed body.
+ */
+public class GzipRequestInterceptor implements ExecutionInterceptor {
+
+  public static final String PAYLOAD_BYTES_METRIC_NAME = "metrics.publish.payload.bytes";
+  public static final String SENT_BYTES_METRIC_NAME = "metrics.publish.sent.bytes";
+
+  private static final String OPERATION_NAME = "PutMetricData";
+  private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded; charset=utf-8";
+  private static final ExecutionAttribute<byte[]> COMPRESSED_BODY = new ExecutionAttribute<>("GzipRequestInterceptor.CompressedBody");
+
+  private final int minRequestSizeInBytes;
+  // null until bound
+  private volatile Counter payloadBytes;
+  private volatile Counter sentBytes;
+
+  public GzipRequestInterceptor(CompressionConfig compressionConfig) {
+    this.minRequestSizeInBytes = compressionConfig.getMinRequestSizeInBytes();
+  }
+
+  /**
+   * Counts the uncompressed and the sent bytes of the requests, their ratio per step is the compression ratio.
+   */
+  public void bindTo(Metrics metricsService) {
+    payloadBytes = metricsService.createOrGetCounter(PAYLOAD_BYTES_METRIC_NAME);
+    sentBytes = metricsService.createOrGetCounter(SENT_BYTES_METRIC_NAME);
+  }
+
+  @Override
+  public Optional<RequestBody> modifyHttpContent(Context.ModifyHttpRequest context, ExecutionAttributes executionAttributes) {
+    if (!OPERATION_NAME.equals(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME))) {
+      return context.requestBody();
+    }
+    byte[] payload = formData((SdkHttpFullRequest) context.httpRequest());
+    if (payload == null) {
+      return context.requestBody();
+    }
+    if (payload.length < minRequestSizeInBytes) {
+      count(payload.length, payload.length);
+      return context.requestBody();
+    }
+    byte[] compressed = gzip(payload);
+    count(payload.length, compressed.length);
+    // picked up by modifyHttpRequest, which is invoked with the same context
+    executionAttributes.putAttribute(COMPRESSED_BODY, compressed);
+    return Optional.of(RequestBody.fromContentProvider(() -> new ByteArrayInputStream(compressed), compressed.length, FORM_CONTENT_TYPE));
+  }
+
+  @Override
+  public SdkHttpRequest modifyHttpRequest(Context.ModifyHttpRequest context, ExecutionAttributes executionAttributes) {
+    byte[] compressed = executionAttributes.getAttribute(COMPRESSED_BODY);
+    if (compressed == null) {
+      return context.httpRequest();
+    }
+    return ((SdkHttpFullRequest) context.httpRequest()).toBuilder()
+        .clearQueryParameters()
+        .contentStreamProvider(() -> new ByteArrayInputStream(compressed))
+        .putHeader("Content-Type", FORM_CONTENT_TYPE)
+        .putHeader("Content-Encoding", "gzip")
+        .putHeader("Content-Length", String.valueOf(compressed.length))
+        .build();
+  }
+
+  /**
+   * The query protocol marshals the parameters into the query string, which the SDK only moves into the body after the interceptors of the client
+   * have run. Returns <code>null</code> for requests of any other shape.
+   */
+  private static byte[] formData(SdkHttpFullRequest request) {
+    if (request.method() != SdkHttpMethod.POST || request.contentStreamProvider().isPresent()) {
+      return null;
+    }
+    return request.encodedQueryParametersAsFormData().map(formData -> formData.getBytes(StandardCharsets.UTF_8)).orElse(null);
+  }
+
+  private void count(int payloadLength, int sentLength) {
+    Counter payloadBytes = this.payloadBytes;
+    Counter sentBytes = this.sentBytes;
+    if (payloadBytes != null && sentBytes != null) {
+      payloadBytes.increment(payloadLength);
+      sentBytes.increment(sentLength);
+    }
+  }
+
+  private static byte[] gzip(byte[] payload) {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream(payload.length / 4);
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+      gzipOutputStream.write(payload);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return outputStream.toByteArray();
+  }
+}
@@ -0,0 +1,90 @@
+package com.arthur.metrics.internal.registry;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.pause.PauseDetector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An {@link IdleAwareStepTimer}, which additionally keeps the count, total, minimum and maximum duration per second, so that it can be published at a
+ * resolution of 1 second while still being published once per step.
+ * <p>
+ * The statistics are kept in arrays with a slot per second of two steps, which are alternately used by even and odd steps like the buckets of a
+ * {@link SketchTimer}, so the seconds of the previous step can be drained while the current step is recorded. The step has to be a whole number of
+ * seconds. A recording that races with the drain is published with the next drain of the same slot rather than being lost.
+ */
+class HighResolutionTimer extends IdleAwareStepTimer {
+
+  private static final long MILLIS_PER_SECOND = 1000;
+  private static final long NONE = Long.MAX_VALUE;
+
+  private final long stepMillis;
+  private final int secondsPerStep;
+  private final AtomicLongArray counts;
+  private final AtomicLongArray totalNanos;
+  private final AtomicLongArray minNanos;
+  private final AtomicLongArray maxNanos;
+
+  HighResolutionTimer(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector, TimeUnit baseTimeUnit,
+      long stepMillis) {
+    super(id, clock, distributionStatisticConfig, pauseDetector, baseTimeUnit, stepMillis);
+    if (stepMillis < MILLIS_PER_SECOND || stepMillis % MILLIS_PER_SECOND != 0) {
+      throw new IllegalArgumentException("The step of a high resolution timer must be a whole number of seconds");
+    }
+    this.stepMillis = stepMillis;
+    this.secondsPerStep = (int) (stepMillis / MILLIS_PER_SECOND);
+    this.counts = new AtomicLongArray(2 * secondsPerStep);
+    this.totalNanos = new AtomicLongArray(2 * secondsPerStep);
+    this.minNanos = new AtomicLongArray(2 * secondsPerStep);
+    this.maxNanos = new AtomicLongArray(2 * secondsPerStep);
+    for (int i = 0; i < minNanos.length(); i++) {
+      minNanos.set(i, NONE);
+    }
+  }
+
+  @Override
+  protected void recordNonNegative(long amount, TimeUnit unit) {
+    super.recordNonNegative(amount, unit);
+    long nanos = unit.toNanos(amount);
+    int slot = (int) (clock.wallTime() / MILLIS_PER_SECOND % counts.length());
+    counts.incrementAndGet(slot);
+    totalNanos.addAndGet(slot, nanos);
+    long current;
+    // plain reads for the common case of a duration that is neither the new minimum nor the new maximum
+    while (nanos < (current = minNanos.get(slot)) && !minNanos.compareAndSet(slot, current, nanos)) {
+      Thread.onSpinWait();
+    }
+    while (nanos > (current = maxNanos.get(slot)) && !maxNanos.compareAndSet(slot, current, nanos)) {
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * Hands the statistics of every second of the previous step in which something was recorded to the consumer, and resets them.
+   */
+  void pollSeconds(SecondConsumer consumer) {
+    long previousStep = clock.wallTime() / stepMillis - 1;
+    int firstSlot = (int) (previousStep & 1) * secondsPerStep;
+    for (int i = 0; i < secondsPerStep; i++) {
+      int slot = firstSlot + i;
+      if (counts.get(slot) == 0) {
+        continue;
+      }
+      long count = counts.getAndSet(slot, 0);
+      long total = totalNanos.getAndSet(slot, 0);
+      long min = minNanos.getAndSet(slot, NONE);
+      long max = maxNanos.getAndSet(slot, 0);
+      // the minimum can be missing when a recording raced with the drain
+      consumer.accept(previousStep * stepMillis + i * MILLIS_PER_SECOND, count, total, min == NONE ? Math.min(total / count, max) : min, max);
+    }
+  }
+
+  interface SecondConsumer {
+
+    /**
+     * @param timestamp Start of the second, in epoch milliseconds
+     */
+    void accept(long timestamp, long count, long totalNanos, long minNanos, long maxNanos);
+  }
+}
@@ -0,0 +1,44 @@
+package com.arthur.metrics.internal.registry;
+
+import io.micrometer.core.instrument.Clock;
+
+/**
+ * A step meter that remembers the last of its steps in which it recorded something, including the step in progress, so that it is not taken for idle
+ * while it records.
+ */
+interface IdleAwareMeter {
+
+  /**
+   * Number of completed steps of the meter without any recording since it last recorded, or <code>0</code> if it recorded in the step in progress.
+   */
+  long idleSteps();
+
+  /**
+   * Last step in which a meter recorded, shared by the idle aware meters.
+   */
+  final class LastRecordedStep {
+
+    private final Clock clock;
+    private final long stepMillis;
+    private volatile long step;
+
+    LastRecordedStep(Clock clock, long stepMillis) {
+      this.clock = clock;
+      this.stepMillis = stepMillis;
+      // a meter that never records is idle from the step it was created in
+      this.step = clock.wallTime() / stepMillis;
+    }
+
+    void recorded() {
+      long currentStep = clock.wallTime() / stepMillis;
+      // a plain read for the common case of a step that has already been marked
+      if (step != currentStep) {
+        step = currentStep;
+      }
+    }
+
+    long idleSteps() {
+      return Math.max(0, clock.wallTime() / stepMillis - step - 1);
+    }
+  }
+}
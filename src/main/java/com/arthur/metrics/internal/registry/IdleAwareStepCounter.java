@@ -0,0 +1,28 @@
+package com.arthur.metrics.internal.registry;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.step.StepCounter;
+
+/**
+ * A {@link StepCounter}, which remembers the last step it recorded in.
+ */
+class IdleAwareStepCounter extends StepCounter implements IdleAwareMeter {
+
+  private final LastRecordedStep lastRecordedStep;
+
+  IdleAwareStepCounter(Id id, Clock clock, long stepMillis) {
+    super(id, clock, stepMillis);
+    this.lastRecordedStep = new LastRecordedStep(clock, stepMillis);
+  }
+
+  @Override
+  public void increment(double amount) {
+    super.increment(amount);
+    lastRecordedStep.recorded();
+  }
+
+  @Override
+  public long idleSteps() {
+    return lastRecordedStep.idleSteps();
+  }
+}
@@ -0,0 +1,29 @@
+package com.arthur.metrics.internal.registry;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.step.StepDistributionSummary;
+
+/**
+ * A {@link StepDistributionSummary}, which remembers the last step it recorded in.
+ */
+class IdleAwareStepDistributionSummary extends StepDistributionSummary implements IdleAwareMeter {
+
+  private final LastRecordedStep lastRecordedStep;
+
+  IdleAwareStepDistributionSummary(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, double scale, long stepMillis) {
+    super(id, clock, distributionStatisticConfig, scale, stepMillis, false);
+    this.lastRecordedStep = new LastRecordedStep(clock, stepMillis);
+  }
+
+  @Override
+  protected void recordNonNegative(double amount) {
+    super.recordNonNegative(amount);
+    lastRecordedStep.recorded();
+  }
+
+  @Override
+  public long idleSteps() {
+    return lastRecordedStep.idleSteps();
+  }
+}
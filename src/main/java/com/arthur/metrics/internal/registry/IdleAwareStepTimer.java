@@ -0,0 +1,32 @@
+package com.arthur.metrics.internal.registry;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.pause.PauseDetector;
+import io.micrometer.core.instrument.step.StepTimer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link StepTimer}, which remembers the last step it recorded in.
+ */
+class IdleAwareStepTimer extends StepTimer implements IdleAwareMeter {
+
+  private final LastRecordedStep lastRecordedStep;
+
+  IdleAwareStepTimer(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector, TimeUnit baseTimeUnit,
+      long stepMillis) {
+    super(id, clock, distributionStatisticConfig, pauseDetector, baseTimeUnit, stepMillis, false);
+    this.lastRecordedStep = new LastRecordedStep(clock, stepMillis);
+  }
+
+  @Override
+  protected void recordNonNegative(long amount, TimeUnit unit) {
+    super.recordNonNegative(amount, unit);
+    lastRecordedStep.recorded();
+  }
+
+  @Override
+  public long idleSteps() {
+    return lastRecordedStep.idleSteps();
+  }
+}
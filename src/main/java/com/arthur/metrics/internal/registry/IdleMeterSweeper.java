@@ -0,0 +1,76 @@
+package com.arthur.metrics.internal.registry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Removes counters, timers and distribution summaries from the registry once they have not recorded anything for a number of consecutive steps of their
+ * own, so a meter published with a longer step than the registry is not taken for idle before its step completes.
+ * <p>
+ * The meters created by {@link ArthurCloudWatchMeterRegistry} remember the step they last recorded in, including the step in progress, which only costs a
+ * volatile read per recording. The registry sweeps right after publishing, so a meter is never removed while it records in the current step. A recording
+ * that races with the removal itself can still be lost. Gauges and function based meters are owned by the application and are never removed.
+ * <p>
+ * Evictions are published per metric name as {@value #EVICTED_METRIC_NAME}.
+ */
+@Log4j2
+public class IdleMeterSweeper {
+
+  public static final String EVICTED_METRIC_NAME = "metrics.meters.evicted";
+
+  private final MeterRegistry meterRegistry;
+  private final int maxIdleSteps;
+  private final Set<String> baseTagKeys;
+
+  public IdleMeterSweeper(MeterRegistry meterRegistry, int maxIdleSteps, Set<String> baseTagKeys) {
+    if (maxIdleSteps <= 0) {
+      throw new IllegalArgumentException("maxIdleSteps must be greater than 0");
+    }
+    this.meterRegistry = meterRegistry;
+    this.maxIdleSteps = maxIdleSteps;
+    this.baseTagKeys = Set.copyOf(baseTagKeys);
+  }
+
+  /**
+   * Expected to be invoked once per step, after publishing.
+   */
+  void sweep() {
+    List<Meter> expired = new ArrayList<>();
+    for (Meter meter : meterRegistry.getMeters()) {
+      if (isExpirable(meter) && ((IdleAwareMeter) meter).idleSteps() >= maxIdleSteps) {
+        expired.add(meter);
+      }
+    }
+    for (Meter meter : expired) {
+      meterRegistry.remove(meter);
+      evictedCounter(meter.getId()).increment();
+    }
+    if (!expired.isEmpty()) {
+      log.debug("Removed {} meters that were idle for {} steps", expired.size(), maxIdleSteps);
+    }
+  }
+
+  private static boolean isExpirable(Meter meter) {
+    return meter instanceof IdleAwareMeter && !EVICTED_METRIC_NAME.equals(meter.getId().getName());
+  }
+
+  private Counter evictedCounter(Meter.Id evictedId) {
+    List<Tag> tags = new ArrayList<>(baseTagKeys.size() + 1);
+    for (Tag tag : evictedId.getTagsAsIterable()) {
+      if (baseTagKeys.contains(tag.getKey())) {
+        tags.add(tag);
+      }
+    }
+    tags.add(Tag.of(CardinalityLimiter.TAG_METRIC_NAME, evictedId.getName()));
+    return Counter.builder(EVICTED_METRIC_NAME)
+        .tags(tags)
+        .description("Number of meters removed after being idle")
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,43 @@
+package com.arthur.metrics.internal.registry;
+
+import io.micrometer.core.instrument.Tag;
+import java.util.List;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+/**
+ * Receives the metric data of each publish step from an {@link ArthurCloudWatchMeterRegistry}. All methods are invoked from the publishing thread of
+ * the registry.
+ * <p>
+ * Metric names are passed as the name of the meter and a suffix (E.g. <code>.count</code>), and the tags (dimensions) are the same instance for all
+ * data of a meter, so that a publisher does not have to allocate per datum.
+ */
+public interface MetricDataPublisher extends AutoCloseable {
+
+  void beginStep(long timestamp);
+
+  void add(String metricName, String suffix, List<Tag> tags, StandardUnit unit, double value);
+
+  void addStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, double sampleCount, double sum, double minimum, double maximum);
+
+  /**
+   * Adds a statistic set of a single second, which is stored at a resolution of 1 second.
+   *
+   * @param timestamp Start of the second, in epoch milliseconds
+   */
+  void addHighResolutionStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, long timestamp, double sampleCount, double sum,
+      double minimum, double maximum);
+
+  /**
+   * @param length Number of values (and counts) to publish, the arrays may be longer
+   */
+  void addDistribution(String metricName, List<Tag> tags, StandardUnit unit, double[] values, double[] counts, int length);
+
+  /**
+   * Sends or writes the metric data of the step.
+   */
+  void endStep();
+
+  @Override
+  default void close() {
+  }
+}
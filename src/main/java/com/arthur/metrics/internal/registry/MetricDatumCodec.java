@@ -0,0 +1,140 @@
+package com.arthur.metrics.internal.registry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
+
+/**
+ * Binary serialization of the metric data of a <code>PutMetricData</code> request, including their timestamps, for the {@link MetricSpool}.
+ */
+final class MetricDatumCodec {
+
+  private static final int VERSION = 1;
+  private static final int HAS_UNIT = 1;
+  private static final int HAS_TIMESTAMP = 1 << 1;
+  private static final int HAS_VALUE = 1 << 2;
+  private static final int HAS_STATISTIC_VALUES = 1 << 3;
+  private static final int HAS_STORAGE_RESOLUTION = 1 << 4;
+
+  private MetricDatumCodec() {
+  }
+
+  static byte[] encode(List<MetricDatum> metricData) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(metricData.size() * 128);
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeByte(VERSION);
+      output.writeInt(metricData.size());
+      for (MetricDatum datum : metricData) {
+        write(output, datum);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  static List<MetricDatum> decode(byte[] bytes) throws IOException {
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      int version = input.readByte();
+      if (version != VERSION) {
+        throw new IOException("Unsupported version " + version);
+      }
+      int size = input.readInt();
+      List<MetricDatum> metricData = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        metricData.add(read(input));
+      }
+      return metricData;
+    }
+  }
+
+  private static void write(DataOutputStream output, MetricDatum datum) throws IOException {
+    int flags = (datum.unit() != null ? HAS_UNIT : 0)
+        | (datum.timestamp() != null ? HAS_TIMESTAMP : 0)
+        | (datum.value() != null ? HAS_VALUE : 0)
+        | (datum.statisticValues() != null ? HAS_STATISTIC_VALUES : 0)
+        | (datum.storageResolution() != null ? HAS_STORAGE_RESOLUTION : 0);
+    output.writeByte(flags);
+    output.writeUTF(datum.metricName());
+    if (datum.unit() != null) {
+      output.writeUTF(datum.unitAsString());
+    }
+    if (datum.timestamp() != null) {
+      output.writeLong(datum.timestamp().toEpochMilli());
+    }
+    output.writeShort(datum.dimensions().size());
+    for (Dimension dimension : datum.dimensions()) {
+      output.writeUTF(dimension.name());
+      output.writeUTF(dimension.value());
+    }
+    if (datum.value() != null) {
+      output.writeDouble(datum.value());
+    }
+    if (datum.statisticValues() != null) {
+      StatisticSet statisticSet = datum.statisticValues();
+      output.writeDouble(statisticSet.sampleCount());
+      output.writeDouble(statisticSet.sum());
+      output.writeDouble(statisticSet.minimum());
+      output.writeDouble(statisticSet.maximum());
+    }
+    output.writeShort(datum.values().size());
+    for (int i = 0; i < datum.values().size(); i++) {
+      output.writeDouble(datum.values().get(i));
+      output.writeDouble(datum.counts().isEmpty() ? 1 : datum.counts().get(i));
+    }
+    if (datum.storageResolution() != null) {
+      output.writeInt(datum.storageResolution());
+    }
+  }
+
+  private static MetricDatum read(DataInputStream input) throws IOException {
+    int flags = input.readByte();
+    MetricDatum.Builder datum = MetricDatum.builder().metricName(input.readUTF());
+    if ((flags & HAS_UNIT) != 0) {
+      datum.unit(input.readUTF());
+    }
+    if ((flags & HAS_TIMESTAMP) != 0) {
+      datum.timestamp(Instant.ofEpochMilli(input.readLong()));
+    }
+    int dimensionCount = input.readShort();
+    List<Dimension> dimensions = new ArrayList<>(dimensionCount);
+    for (int i = 0; i < dimensionCount; i++) {
+      dimensions.add(Dimension.builder().name(input.readUTF()).value(input.readUTF()).build());
+    }
+    datum.dimensions(dimensions);
+    if ((flags & HAS_VALUE) != 0) {
+      datum.value(input.readDouble());
+    }
+    if ((flags & HAS_STATISTIC_VALUES) != 0) {
+      datum.statisticValues(StatisticSet.builder()
+          .sampleCount(input.readDouble())
+          .sum(input.readDouble())
+          .minimum(input.readDouble())
+          .maximum(input.readDouble())
+          .build());
+    }
+    int valueCount = input.readShort();
+    if (valueCount > 0) {
+      List<Double> values = new ArrayList<>(valueCount);
+      List<Double> counts = new ArrayList<>(valueCount);
+      for (int i = 0; i < valueCount; i++) {
+        values.add(input.readDouble());
+        counts.add(input.readDouble());
+      }
+      datum.values(values).counts(counts);
+    }
+    if ((flags & HAS_STORAGE_RESOLUTION) != 0) {
+      datum.storageResolution(input.readInt());
+    }
+    return datum.build();
+  }
+}
@@ -0,0 +1,189 @@
+package com.arthur.metrics.internal.registry;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Write-ahead spool of serialized batches, backed by a memory-mapped file of a fixed size. Batches are kept in a ring buffer in the order they were
+ * appended: when a batch does not fit anymore, the oldest batches are evicted until it does. The spool survives a restart of the application, as the
+ * positions of the oldest and newest batch are kept in the header of the file.
+ * <p>
+ * A batch is stored as its length followed by its bytes. A batch never wraps around the end of the file; the space at the end is skipped instead,
+ * marked by {@value #WRAP} as length if there is room for it.
+ */
+@Log4j2
+public class MetricSpool implements AutoCloseable {
+
+  private static final int MAGIC = 0x4D535031;
+  // magic, head, tail, count
+  static final int HEADER_SIZE = 4 + 8 + 8 + 4;
+  private static final int LENGTH_SIZE = 4;
+  private static final int WRAP = -1;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+  private int head;
+  private int tail;
+  private int count;
+  // number of batches removed or evicted so far, identifies the oldest batch
+  private long headSequence;
+
+  public MetricSpool(Path file, int maxSizeInBytes) throws IOException {
+    if (maxSizeInBytes <= HEADER_SIZE + LENGTH_SIZE) {
+      throw new IllegalArgumentException("maxSizeInBytes must be greater than " + (HEADER_SIZE + LENGTH_SIZE));
+    }
+    Path absoluteFile = file.toAbsolutePath();
+    Files.createDirectories(absoluteFile.getParent());
+    this.channel = FileChannel.open(absoluteFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    boolean resized = channel.size() != maxSizeInBytes;
+    if (resized) {
+      // a spool of a different size cannot be read anymore
+      channel.truncate(0);
+    }
+    this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, maxSizeInBytes);
+    this.capacity = maxSizeInBytes;
+    if (resized || buffer.getInt(0) != MAGIC) {
+      clear();
+    } else {
+      head = (int) buffer.getLong(4);
+      tail = (int) buffer.getLong(12);
+      count = buffer.getInt(20);
+      if (count > 0) {
+        log.info("Found {} metric batches in the spool {}", count, absoluteFile);
+      }
+    }
+  }
+
+  /**
+   * Appends a batch, evicting the oldest batches if necessary.
+   *
+   * @return <code>false</code> if the batch is larger than the spool
+   */
+  public synchronized boolean append(byte[] batch) {
+    int size = LENGTH_SIZE + batch.length;
+    if (size > capacity - HEADER_SIZE) {
+      return false;
+    }
+    int evicted = reserve(size);
+    if (evicted > 0) {
+      log.warn("Evicted the {} oldest metric batches from the spool, as it is full", evicted);
+    }
+    buffer.putInt(tail, batch.length);
+    buffer.duplicate().position(tail + LENGTH_SIZE).put(batch);
+    tail += size;
+    count++;
+    writeHeader();
+    return true;
+  }
+
+  /**
+   * @return The oldest batch, or <code>null</code> if the spool is empty
+   */
+  public synchronized Batch peek() {
+    if (count == 0) {
+      return null;
+    }
+    int position = skipWrap(head);
+    byte[] bytes = new byte[buffer.getInt(position)];
+    buffer.duplicate().position(position + LENGTH_SIZE).get(bytes);
+    return new Batch(headSequence, bytes);
+  }
+
+  /**
+   * Removes the batch, unless it was evicted in the meantime.
+   */
+  public synchronized void remove(Batch batch) {
+    if (count > 0 && batch.sequence == headSequence) {
+      removeHead();
+      writeHeader();
+    }
+  }
+
+  public synchronized int size() {
+    return count;
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      buffer.force();
+      channel.close();
+    } catch (IOException e) {
+      log.error("Failed to close the metric spool", e);
+    }
+  }
+
+  // evicts the oldest batches until the size fits at the tail, returns the number of evicted batches
+  private int reserve(int size) {
+    int evicted = 0;
+    while (true) {
+      if (count == 0) {
+        head = HEADER_SIZE;
+        tail = HEADER_SIZE;
+      }
+      boolean wrapped = tail < head || tail == head && count > 0;
+      if (!wrapped) {
+        if (capacity - tail >= size) {
+          return evicted;
+        }
+        if (head - HEADER_SIZE >= size) {
+          if (capacity - tail >= LENGTH_SIZE) {
+            buffer.putInt(tail, WRAP);
+          }
+          tail = HEADER_SIZE;
+          return evicted;
+        }
+      } else if (head - tail >= size) {
+        return evicted;
+      }
+      removeHead();
+      evicted++;
+    }
+  }
+
+  private void removeHead() {
+    head = skipWrap(head);
+    head += LENGTH_SIZE + buffer.getInt(head);
+    count--;
+    headSequence++;
+  }
+
+  private int skipWrap(int position) {
+    return capacity - position < LENGTH_SIZE || buffer.getInt(position) == WRAP ? HEADER_SIZE : position;
+  }
+
+  private void clear() {
+    head = HEADER_SIZE;
+    tail = HEADER_SIZE;
+    count = 0;
+    writeHeader();
+  }
+
+  private void writeHeader() {
+    buffer.putInt(0, MAGIC);
+    buffer.putLong(4, head);
+    buffer.putLong(12, tail);
+    buffer.putInt(20, count);
+  }
+
+  public static final class Batch {
+
+    private final long sequence;
+    private final byte[] bytes;
+
+    private Batch(long sequence, byte[] bytes) {
+      this.sequence = sequence;
+      this.bytes = bytes;
+    }
+
+    public byte[] getBytes() {
+      return bytes;
+    }
+  }
+}
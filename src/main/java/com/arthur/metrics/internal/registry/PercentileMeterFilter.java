@@ -0,0 +1,57 @@
+package com.arthur.metrics.internal.registry;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.PercentilesConfig;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Enables client side percentiles for timers of selected metric names. The percentiles are computed from a fixed size histogram per series (of the
+ * configured precision) over a rolling window and are published as <code>&lt;metric name&gt;.percentile</code> gauges with a <code>phi</code> tag.
+ * <p>
+ * The distribution configuration of a meter is fixed once it is registered, so percentiles have to be enabled before a timer records the first time.
+ */
+public class PercentileMeterFilter implements MeterFilter {
+
+  private final double[] defaultPercentiles;
+  private final int precision;
+  private final Duration window;
+  private final int bufferLength;
+  private final ConcurrentMap<String, double[]> percentilesByMetric = new ConcurrentHashMap<>();
+
+  public PercentileMeterFilter(PercentilesConfig percentilesConfig, Duration step) {
+    this.defaultPercentiles = percentilesConfig.getPercentiles().clone();
+    this.precision = percentilesConfig.getPrecision();
+    this.window = percentilesConfig.getWindowInSeconds() != null ? Duration.ofSeconds(percentilesConfig.getWindowInSeconds()) : step;
+    this.bufferLength = percentilesConfig.getBufferLength();
+    percentilesConfig.getMetricNames().forEach(this::enable);
+  }
+
+  /**
+   * @param percentiles E.g. <code>0.99</code>, the configured percentiles are used if none are given
+   */
+  public void enable(String metricName, double... percentiles) {
+    percentilesByMetric.put(metricName, percentiles.length > 0 ? percentiles.clone() : defaultPercentiles);
+  }
+
+  @Override
+  public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+    if (id.getType() != Meter.Type.TIMER) {
+      return config;
+    }
+    double[] percentiles = percentilesByMetric.get(id.getName());
+    if (percentiles == null) {
+      return config;
+    }
+    return DistributionStatisticConfig.builder()
+        .percentiles(percentiles)
+        .percentilePrecision(precision)
+        .expiry(window)
+        .bufferLength(bufferLength)
+        .build()
+        .merge(config);
+  }
+}
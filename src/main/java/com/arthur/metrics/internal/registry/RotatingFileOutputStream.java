@@ -0,0 +1,84 @@
+package com.arthur.metrics.internal.registry;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends to a file, which is rotated once it would exceed the maximum size: <code>file</code> is renamed to <code>file.1</code>,
+ * <code>file.1</code> to <code>file.2</code> and so on, while the oldest file beyond the maximum number of files is deleted.
+ * <p>
+ * A file is only rotated between two writes, so that a single write (E.g. a line) is never split across files.
+ */
+class RotatingFileOutputStream extends OutputStream {
+
+  private final Path file;
+  private final long maxFileSizeInBytes;
+  private final int maxFiles;
+  private OutputStream outputStream;
+  private long size;
+
+  /**
+   * @param maxFiles Number of rotated files that are kept in addition to the current file
+   */
+  RotatingFileOutputStream(Path file, long maxFileSizeInBytes, int maxFiles) throws IOException {
+    this.file = file.toAbsolutePath();
+    this.maxFileSizeInBytes = maxFileSizeInBytes;
+    this.maxFiles = maxFiles;
+    Files.createDirectories(this.file.getParent());
+    open();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (size > 0 && size + len > maxFileSizeInBytes) {
+      rotate();
+    }
+    outputStream.write(b, off, len);
+    size += len;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    outputStream.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    outputStream.close();
+  }
+
+  private void rotate() throws IOException {
+    outputStream.close();
+    if (maxFiles <= 0) {
+      Files.delete(file);
+    } else {
+      Files.deleteIfExists(rotated(maxFiles));
+      for (int i = maxFiles - 1; i >= 1; i--) {
+        if (Files.exists(rotated(i))) {
+          Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+    open();
+  }
+
+  private void open() throws IOException {
+    outputStream = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    size = Files.size(file);
+  }
+
+  private Path rotated(int index) {
+    return file.resolveSibling(file.getFileName() + "." + index);
+  }
+}
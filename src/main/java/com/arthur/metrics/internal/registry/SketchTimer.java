@@ -0,0 +1,51 @@
+package com.arthur.metrics.internal.registry;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.pause.PauseDetector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link StepMinTimer}, which additionally counts the recorded durations per step in the buckets of a {@link Base2ExponentialBuckets} layout.
+ * <p>
+ * Counts are kept in two arrays, which are alternately used by even and odd steps, so the counts of the previous step can be drained while the current
+ * step is recorded. A recording that races with the drain is published with the next drain of the same array rather than being lost.
+ */
+class SketchTimer extends StepMinTimer {
+
+  private final Base2ExponentialBuckets buckets;
+  private final AtomicLongArray[] countsByStepParity;
+
+  SketchTimer(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector, TimeUnit baseTimeUnit,
+      long stepMillis, Base2ExponentialBuckets buckets) {
+    super(id, clock, distributionStatisticConfig, pauseDetector, baseTimeUnit, stepMillis);
+    this.buckets = buckets;
+    this.countsByStepParity = new AtomicLongArray[] {new AtomicLongArray(buckets.bucketCount()), new AtomicLongArray(buckets.bucketCount())};
+  }
+
+  @Override
+  protected void recordNonNegative(long amount, TimeUnit unit) {
+    super.recordNonNegative(amount, unit);
+    countsByStepParity[(int) (currentStep() & 1)].incrementAndGet(buckets.index(unit.toNanos(amount)));
+  }
+
+  /**
+   * Returns and resets the bucket counts of the previous step.
+   */
+  long[] pollBucketCounts() {
+    long previousStep = currentStep() - 1;
+    AtomicLongArray counts = countsByStepParity[(int) (previousStep & 1)];
+    long[] snapshot = new long[counts.length()];
+    for (int i = 0; i < snapshot.length; i++) {
+      if (counts.get(i) != 0) {
+        snapshot[i] = counts.getAndSet(i, 0);
+      }
+    }
+    return snapshot;
+  }
+
+  Base2ExponentialBuckets getBuckets() {
+    return buckets;
+  }
+}
@@ -0,0 +1,51 @@
+package com.arthur.metrics.internal.registry;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.pause.PauseDetector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link IdleAwareStepTimer}, which additionally keeps the shortest duration per step, as required by a CloudWatch statistic set.
+ * <p>
+ * Like the buckets of a {@link SketchTimer}, the minimum is kept per step parity, so the minimum of the previous step can be drained while the current
+ * step is recorded.
+ */
+class StepMinTimer extends IdleAwareStepTimer {
+
+  private static final long NONE = Long.MAX_VALUE;
+
+  private final long stepMillis;
+  private final AtomicLong[] minNanosByStepParity = {new AtomicLong(NONE), new AtomicLong(NONE)};
+
+  StepMinTimer(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector, TimeUnit baseTimeUnit,
+      long stepMillis) {
+    super(id, clock, distributionStatisticConfig, pauseDetector, baseTimeUnit, stepMillis);
+    this.stepMillis = stepMillis;
+  }
+
+  @Override
+  protected void recordNonNegative(long amount, TimeUnit unit) {
+    super.recordNonNegative(amount, unit);
+    long nanos = unit.toNanos(amount);
+    AtomicLong minNanos = minNanosByStepParity[(int) (currentStep() & 1)];
+    long current;
+    // a plain read for the common case of a duration that is not the new minimum
+    while (nanos < (current = minNanos.get()) && !minNanos.compareAndSet(current, nanos)) {
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * Returns and resets the minimum of the previous step, or <code>NaN</code> if nothing was recorded.
+   */
+  double pollMin(TimeUnit unit) {
+    long minNanos = minNanosByStepParity[(int) ((currentStep() - 1) & 1)].getAndSet(NONE);
+    return minNanos == NONE ? Double.NaN : (double) minNanos / unit.toNanos(1);
+  }
+
+  long currentStep() {
+    return clock.wallTime() / stepMillis;
+  }
+}
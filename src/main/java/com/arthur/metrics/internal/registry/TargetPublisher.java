@@ -0,0 +1,362 @@
+package com.arthur.metrics.internal.registry;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.TargetConfig;
+import io.micrometer.core.instrument.Tag;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+/**
+ * Publishes the metric data of the registry to one of several targets, which each have their own metric name filter, tag filter and step. The registry
+ * records every meter once and hands the metric data of each step to all targets, so the recording cost does not depend on the number of targets.
+ * <p>
+ * Series that only differ in removed tags are aggregated into one series, and the data of several registry steps are aggregated into one step of the
+ * target: counts and sums are added up, maximums and minimums are kept, averages are derived from the aggregated sum and count, distributions are
+ * merged, statistic sets of a single second are aggregated per second and gauges are added up across series but take the value of the latest step.
+ * Without a tag filter and with the step of the registry, metric data are passed through as they are.
+ * <p>
+ * Percentile gauges (tagged <code>phi</code>) cannot be added up, so they are dropped for series whose tags are reduced by the tag filter, and only
+ * published for series that keep all of their tags.
+ */
+public class TargetPublisher implements MetricDataPublisher {
+
+  // tag of the percentile gauges of timers and distribution summaries, see HistogramGauges
+  static final String PERCENTILE_TAG_KEY = "phi";
+
+  private final MetricDataPublisher delegate;
+  private final int stepMultiple;
+  private final List<Pattern> metricNameAllowlist;
+  private final List<Pattern> metricNameDenylist;
+  private final Set<String> tagAllowlist;
+  private final Set<String> tagDenylist;
+  private final boolean aggregating;
+  // only accessed by the publishing thread
+  private final Map<String, Boolean> allowedMetricNames = new HashMap<>();
+  private final Map<SeriesKey, Series> series = new LinkedHashMap<>();
+  private List<Tag> previousTags;
+  private List<Tag> previousFilteredTags;
+  private long timestamp;
+  private int steps;
+
+  /**
+   * @param stepMultiple Number of registry steps that are aggregated into one step of the target
+   */
+  public TargetPublisher(MetricDataPublisher delegate, TargetConfig targetConfig, int stepMultiple) {
+    if (stepMultiple <= 0) {
+      throw new IllegalArgumentException("stepMultiple must be greater than 0");
+    }
+    this.delegate = delegate;
+    this.stepMultiple = stepMultiple;
+    this.metricNameAllowlist = targetConfig.getMetricNameAllowlist().stream().map(Pattern::compile).collect(Collectors.toList());
+    this.metricNameDenylist = targetConfig.getMetricNameDenylist().stream().map(Pattern::compile).collect(Collectors.toList());
+    this.tagAllowlist = Set.copyOf(targetConfig.getTagAllowlist());
+    this.tagDenylist = Set.copyOf(targetConfig.getTagDenylist());
+    this.aggregating = stepMultiple > 1 || !tagAllowlist.isEmpty() || !tagDenylist.isEmpty();
+  }
+
+  @Override
+  public void beginStep(long timestamp) {
+    this.timestamp = timestamp;
+    if (!aggregating) {
+      delegate.beginStep(timestamp);
+    }
+  }
+
+  @Override
+  public void add(String metricName, String suffix, List<Tag> tags, StandardUnit unit, double value) {
+    if (!isAllowed(metricName)) {
+      return;
+    }
+    if (!aggregating) {
+      delegate.add(metricName, suffix, tags, unit, value);
+      return;
+    }
+    if (".value".equals(suffix) && filteredTags(tags).size() < tags.size() && isPercentile(tags)) {
+      return;
+    }
+    series(metricName, tags).add(suffix, unit, value, steps);
+  }
+
+  @Override
+  public void addStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, double sampleCount, double sum, double minimum, double maximum) {
+    if (!isAllowed(metricName)) {
+      return;
+    }
+    if (!aggregating) {
+      delegate.addStatisticSet(metricName, tags, unit, sampleCount, sum, minimum, maximum);
+      return;
+    }
+    series(metricName, tags).addStatisticSet(unit, sampleCount, sum, minimum, maximum);
+  }
+
+  @Override
+  public void addHighResolutionStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, long timestamp, double sampleCount, double sum,
+      double minimum, double maximum) {
+    if (!isAllowed(metricName)) {
+      return;
+    }
+    if (!aggregating) {
+      delegate.addHighResolutionStatisticSet(metricName, tags, unit, timestamp, sampleCount, sum, minimum, maximum);
+      return;
+    }
+    series(metricName, tags).addHighResolutionStatisticSet(unit, timestamp, sampleCount, sum, minimum, maximum);
+  }
+
+  @Override
+  public void addDistribution(String metricName, List<Tag> tags, StandardUnit unit, double[] values, double[] counts, int length) {
+    if (!isAllowed(metricName)) {
+      return;
+    }
+    if (!aggregating) {
+      delegate.addDistribution(metricName, tags, unit, values, counts, length);
+      return;
+    }
+    series(metricName, tags).addDistribution(unit, values, counts, length);
+  }
+
+  @Override
+  public void endStep() {
+    if (!aggregating) {
+      delegate.endStep();
+    } else if (++steps == stepMultiple) {
+      flush();
+    }
+  }
+
+  @Override
+  public void close() {
+    // publishes the data of an incomplete target step
+    if (aggregating && !series.isEmpty()) {
+      flush();
+    }
+    delegate.close();
+  }
+
+  private void flush() {
+    delegate.beginStep(timestamp);
+    for (Series aggregate : series.values()) {
+      aggregate.publish(delegate);
+    }
+    delegate.endStep();
+    series.clear();
+    steps = 0;
+  }
+
+  private boolean isAllowed(String metricName) {
+    Boolean allowed = allowedMetricNames.get(metricName);
+    if (allowed == null) {
+      allowed = (metricNameAllowlist.isEmpty() || matchesAny(metricNameAllowlist, metricName)) && !matchesAny(metricNameDenylist, metricName);
+      allowedMetricNames.put(metricName, allowed);
+    }
+    return allowed;
+  }
+
+  private static boolean matchesAny(List<Pattern> patterns, String metricName) {
+    for (Pattern pattern : patterns) {
+      if (pattern.matcher(metricName).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Series series(String metricName, List<Tag> tags) {
+    return series.computeIfAbsent(new SeriesKey(metricName, filteredTags(tags)), key -> new Series(key.metricName, key.tags));
+  }
+
+  private List<Tag> filteredTags(List<Tag> tags) {
+    // the data of a meter are added with the same tags instance
+    if (tags != previousTags) {
+      previousTags = tags;
+      previousFilteredTags = filter(tags);
+    }
+    return previousFilteredTags;
+  }
+
+  private static boolean isPercentile(List<Tag> tags) {
+    for (Tag tag : tags) {
+      if (PERCENTILE_TAG_KEY.equals(tag.getKey())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private List<Tag> filter(List<Tag> tags) {
+    List<Tag> filteredTags = new ArrayList<>(tags.size());
+    for (Tag tag : tags) {
+      if ((tagAllowlist.isEmpty() || tagAllowlist.contains(tag.getKey())) && !tagDenylist.contains(tag.getKey())) {
+        filteredTags.add(tag);
+      }
+    }
+    return filteredTags;
+  }
+
+  private static final class SeriesKey {
+
+    private final String metricName;
+    private final List<Tag> tags;
+
+    private SeriesKey(String metricName, List<Tag> tags) {
+      this.metricName = metricName;
+      this.tags = tags;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof SeriesKey)) {
+        return false;
+      }
+      SeriesKey other = (SeriesKey) o;
+      return metricName.equals(other.metricName) && tags.equals(other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(metricName, tags);
+    }
+  }
+
+  /**
+   * Aggregated metric data of a series within a target step.
+   */
+  private static final class Series {
+
+    private final String metricName;
+    private final List<Tag> tags;
+    private final Map<String, Value> values = new LinkedHashMap<>();
+    private StandardUnit statisticSetUnit;
+    private double sampleCount;
+    private double sum;
+    private double minimum = Double.POSITIVE_INFINITY;
+    private double maximum = Double.NEGATIVE_INFINITY;
+    private StandardUnit distributionUnit;
+    private Map<Double, Double> distribution;
+    private StandardUnit secondsUnit;
+    // sample count, sum, minimum and maximum by the timestamp of the second
+    private Map<Long, double[]> seconds;
+
+    private Series(String metricName, List<Tag> tags) {
+      this.metricName = metricName;
+      this.tags = tags;
+    }
+
+    void add(String suffix, StandardUnit unit, double value, int step) {
+      Value aggregate = values.computeIfAbsent(suffix, key -> new Value(unit));
+      if (".count".equals(suffix) || ".sum".equals(suffix)) {
+        aggregate.value += value;
+      } else if (".max".equals(suffix)) {
+        aggregate.value = aggregate.step < 0 ? value : Math.max(aggregate.value, value);
+      } else if (aggregate.step == step) {
+        aggregate.value += value;
+      } else {
+        // a gauge, or an average that is replaced when published
+        aggregate.value = value;
+      }
+      aggregate.step = step;
+    }
+
+    void addStatisticSet(StandardUnit unit, double sampleCount, double sum, double minimum, double maximum) {
+      this.statisticSetUnit = unit;
+      this.sampleCount += sampleCount;
+      this.sum += sum;
+      this.minimum = Math.min(this.minimum, minimum);
+      this.maximum = Math.max(this.maximum, maximum);
+    }
+
+    void addHighResolutionStatisticSet(StandardUnit unit, long timestamp, double sampleCount, double sum, double minimum, double maximum) {
+      if (seconds == null) {
+        secondsUnit = unit;
+        seconds = new TreeMap<>();
+      }
+      double[] second = seconds.get(timestamp);
+      if (second == null) {
+        seconds.put(timestamp, new double[] {sampleCount, sum, minimum, maximum});
+      } else {
+        second[0] += sampleCount;
+        second[1] += sum;
+        second[2] = Math.min(second[2], minimum);
+        second[3] = Math.max(second[3], maximum);
+      }
+    }
+
+    void addDistribution(StandardUnit unit, double[] values, double[] counts, int length) {
+      if (distribution == null) {
+        distributionUnit = unit;
+        distribution = new LinkedHashMap<>();
+      }
+      for (int i = 0; i < length; i++) {
+        distribution.merge(values[i], counts[i], Double::sum);
+      }
+    }
+
+    void publish(MetricDataPublisher publisher) {
+      Value sumValue = values.get(".sum");
+      Value countValue = values.get(".count");
+      for (Map.Entry<String, Value> entry : values.entrySet()) {
+        Value value = entry.getValue();
+        if (".avg".equals(entry.getKey())) {
+          if (sumValue != null && countValue != null && countValue.value > 0) {
+            publisher.add(metricName, ".avg", tags, value.unit, sumValue.value / countValue.value);
+          }
+        } else {
+          publisher.add(metricName, entry.getKey(), tags, value.unit, value.value);
+        }
+      }
+      if (statisticSetUnit != null) {
+        publisher.addStatisticSet(metricName, tags, statisticSetUnit, sampleCount, sum, minimum, maximum);
+      }
+      if (seconds != null) {
+        for (Map.Entry<Long, double[]> entry : seconds.entrySet()) {
+          double[] second = entry.getValue();
+          publisher.addHighResolutionStatisticSet(metricName, tags, secondsUnit, entry.getKey(), second[0], second[1], second[2], second[3]);
+        }
+      }
+      if (distribution != null) {
+        publishDistribution(publisher);
+      }
+    }
+
+    private void publishDistribution(MetricDataPublisher publisher) {
+      int maxLength = Math.min(distribution.size(), ArthurCloudWatchMeterRegistry.MAX_VALUES_PER_DATUM);
+      double[] distributionValues = new double[maxLength];
+      double[] distributionCounts = new double[maxLength];
+      int length = 0;
+      for (Map.Entry<Double, Double> entry : distribution.entrySet()) {
+        distributionValues[length] = entry.getKey();
+        distributionCounts[length] = entry.getValue();
+        length++;
+        if (length == maxLength) {
+          publisher.addDistribution(metricName, tags, distributionUnit, distributionValues, distributionCounts, length);
+          length = 0;
+        }
+      }
+      if (length > 0) {
+        publisher.addDistribution(metricName, tags, distributionUnit, distributionValues, distributionCounts, length);
+      }
+    }
+  }
+
+  private static final class Value {
+
+    private final StandardUnit unit;
+    private double value;
+    // registry step within the target step that last added to the value
+    private int step = -1;
+
+    private Value(StandardUnit unit) {
+      this.unit = unit;
+    }
+  }
+}
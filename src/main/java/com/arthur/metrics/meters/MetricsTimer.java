@@ -11,6 +11,8 @@ import java.time.Duration;
  *   <li><code>.max</code> - Maximum value of the duration value recorded</li>
  *   <li><code>.sum</code> - Total value of the duration (in millis) recorded</li>
  * </ul>
+ * A {@link MetricsTimer} is thread-safe and holds no state about the measurements in progress, so a single instance can be shared and any number of samples
+ * can be in flight at the same time.
  */
 public interface MetricsTimer {
 
@@ -29,9 +31,59 @@ public interface MetricsTimer {
    */
   void duration(Duration duration, Tags tags);
 
+  /**
+   * Update the stats kept by the metric by the specified amount of nanoseconds. Unlike {@link #duration(Duration)}, no object is needed to record the value.
+   *
+   * @param durationInNanos Duration (in nanoseconds) of a single event being measured by this timer.
+   */
+  void record(long durationInNanos);
+
+  /**
+   * Update the stats kept by the metric by the specified amount of nanoseconds and tags.
+   *
+   * @param durationInNanos Duration (in nanoseconds) of a single event being measured by this timer.
+   * @param tags            {@link Tags} tags of a single event being measured by this timer.
+   */
+  void record(long durationInNanos, Tags tags);
+
+  /**
+   * Start a new sample without allocating any object for it. E.g.
+   * <pre>
+   *   long startTimeInNanos = metricsTimer.startSample();
+   *   // ... do something
+   *   metricsTimer.stopSample(startTimeInNanos);
+   * </pre>
+   *
+   * @return the start time of the sample (in nanoseconds), which should be passed to {@link #stopSample(long)}.
+   */
+  long startSample();
+
+  /**
+   * Stop the sample that was started at the specified time and record its duration.
+   *
+   * @param startTimeInNanos the value returned by {@link #startSample()}
+   */
+  void stopSample(long startTimeInNanos);
+
+  /**
+   * Stop the sample that was started at the specified time and record its duration with custom tags.
+   *
+   * @param startTimeInNanos the value returned by {@link #startSample()}
+   * @param tags             {@link Tags}
+   */
+  void stopSample(long startTimeInNanos, Tags tags);
+
+  /**
+   * Start a new sample, which can also be used with try-with-resources. E.g.
+   * <pre>
+   *   try (TimerInProgress timerInProgress = metricsTimer.start()) {
+   *     // ... do something
+   *   }
+   * </pre>
+   */
   TimerInProgress start();
 
-  interface TimerInProgress {
+  interface TimerInProgress extends AutoCloseable {
 
     /**
      * Stop taking timer measurement
@@ -44,5 +96,11 @@ public interface MetricsTimer {
      * @param tags {@link Tags}
      */
     void stop(Tags tags);
+
+    /**
+     * Stop taking timer measurement, unless it has already been stopped.
+     */
+    @Override
+    void close();
   }
 }
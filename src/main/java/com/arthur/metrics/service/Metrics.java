@@ -2,6 +2,8 @@ package com.arthur.metrics.service;
 
 import com.arthur.metrics.meters.Counter;
 import com.arthur.metrics.meters.MetricsTimer;
+import java.time.Duration;
+import java.util.function.ToDoubleFunction;
 
 public interface Metrics {
 
@@ -42,4 +44,63 @@ public interface Metrics {
    * @return the {@link MetricsTimer} for the given name.
    */
   MetricsTimer createOrGetTimer(String metricName);
+
+  /**
+   * Idempotent method that either create or gets a (reference to an existing) {@link MetricsTimer} for the given name. This operation also adds
+   * <code>Result</code> tag to the metric (E.g. dimension) based on whether the operation was a success or not.
+   *
+   * @param metricName
+   * @param isOperationSuccessful <code>true</code> if the operation was a success, otherwise <code>false</code>
+   * @return the {@link MetricsTimer} for the given name.
+   */
+  MetricsTimer createOrGetTimer(String metricName, boolean isOperationSuccessful);
+
+  /**
+   * Publishes percentiles of the timers with the given name as <code>&lt;metric name&gt;.percentile</code>, with the percentile as <code>phi</code>
+   * tag. Has to be invoked before the timer records the first time.
+   *
+   * @param metricName
+   * @param percentiles E.g. <code>0.95</code>, or none to use <code>parrot.metrics.percentiles.percentiles</code>
+   */
+  void publishPercentiles(String metricName, double... percentiles);
+
+  /**
+   * Publishes the timers with the given name at a resolution of 1 second (<code>StorageResolution=1</code>): they are aggregated per second and the
+   * seconds of a step are published together, as a <code>&lt;metric name&gt;</code> statistic set per second. Has to be invoked before the timer
+   * records the first time. Has no effect with the Prometheus backend.
+   *
+   * @param metricName
+   */
+  void publishHighResolution(String metricName);
+
+  /**
+   * Aggregates and publishes the meters with the given name at the given interval rather than every
+   * <code>parrot.metrics.metrics-push-frequency-in-seconds</code>, E.g. every 5 minutes for low priority counters. Has to be invoked before the meter
+   * is created. Has no effect with the Prometheus backend.
+   *
+   * @param metricName
+   * @param step       A multiple of <code>parrot.metrics.metrics-push-frequency-in-seconds</code>
+   */
+  void publishWithStep(String metricName, Duration step);
+
+  /**
+   * Registers a gauge, whose value is obtained by applying the given function to the state object whenever metrics are published. The state object is
+   * strongly referenced by the gauge. Adds the same tags/dimensions as {@link #createOrGetCounter(String)}.
+   *
+   * @param metricName
+   * @param stateObject   E.g. a collection or an object holding the current value
+   * @param valueFunction function that returns the current value of the gauge
+   */
+  <T> void gauge(String metricName, T stateObject, ToDoubleFunction<T> valueFunction);
+
+  /**
+   * Registers a counter, whose total is obtained by applying the given function to the state object whenever metrics are published. Like other
+   * counters, it is published with the increase since the previous step. Unlike by a gauge, the state object is only weakly referenced, so the
+   * caller has to keep it. Adds the same tags/dimensions as {@link #createOrGetCounter(String)}.
+   *
+   * @param metricName
+   * @param stateObject   E.g. a {@link java.util.concurrent.atomic.LongAdder}
+   * @param countFunction function that returns the monotonically increasing total of the counter
+   */
+  <T> void functionCounter(String metricName, T stateObject, ToDoubleFunction<T> countFunction);
 }
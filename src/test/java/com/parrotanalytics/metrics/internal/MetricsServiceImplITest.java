@@ -1,6 +1,7 @@
 package com.arthur.metrics.internal;
 
 import static com.arthur.metrics.utils.TestUtils.APPLICATION_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.arthur.metrics.AbstractITest;
@@ -59,6 +60,15 @@ class MetricsServiceImplITest extends AbstractITest {
     validateMetricProperties(metricName.awsCountMetricName, CollectionGroup.CATALOG_DATA_COLLECTOR, InstanceTypeTagValue.DATA_COLLECTOR);
   }
 
+  @Test
+  void testCountMetric_accessingSameCounterByName_returnsCachedCounter() {
+    MetricName metricName = new MetricName();
+    assertThat(metrics.createOrGetCounter(metricName.metricName)).isSameAs(metrics.createOrGetCounter(metricName.metricName));
+    assertThat(metrics.createOrGetCounter(metricName.metricName, true)).isSameAs(metrics.createOrGetCounter(metricName.metricName, true));
+    assertThat(metrics.createOrGetCounter(metricName.metricName, false)).isSameAs(metrics.createOrGetCounter(metricName.metricName, false));
+    assertThat(metrics.createOrGetCounter(metricName.metricName, true)).isNotSameAs(metrics.createOrGetCounter(metricName.metricName, false));
+  }
+
   @Test
   void testCountMetric_incrementByAmount_singleInvocation() {
     MetricName metricName = new MetricName();
@@ -134,16 +144,49 @@ class MetricsServiceImplITest extends AbstractITest {
   }
 
   @Test
-  void testTimerMetric_startTimerTwice_getException() throws Exception {
+  void testTimerMetric_startTimerTwice_recordBothSamples() throws Exception {
+    TimerMetricName metricName = new TimerMetricName();
+    MetricsTimer metricsTimer = metrics.createOrGetTimer(metricName.getMetricName());
+    TimerInProgress firstTimerInProgress = metricsTimer.start();
+    TimerInProgress secondTimerInProgress = metricsTimer.start();
+    secondTimerInProgress.stop();
+    firstTimerInProgress.stop();
+
+    waitForMetricsToPublish(metricName.getAwsCountMetricName(), 2, CollectionGroup.CATALOG_DATA_COLLECTOR, null);
+  }
+
+  @Test
+  void testTimerMetric_startAndStopSample_validateDuration() throws Exception {
+    final long minOperationTimeInMillis = 1000;
     TimerMetricName metricName = new TimerMetricName();
     MetricsTimer metricsTimer = metrics.createOrGetTimer(metricName.getMetricName());
+    long startTimeInNanos = metricsTimer.startSample();
+    Thread.sleep(minOperationTimeInMillis);
+    metricsTimer.stopSample(startTimeInNanos);
+
+    waitForMetricsToPublish(metricName.getAwsCountMetricName(), 1, CollectionGroup.CATALOG_DATA_COLLECTOR, null);
+
+    validateTimerMetricDurationAndDimensions(metricName, 1, minOperationTimeInMillis, minOperationTimeInMillis, CollectionGroup.CATALOG_DATA_COLLECTOR,
+        InstanceTypeTagValue.DATA_COLLECTOR, null);
+  }
+
+  @Test
+  void testTimerMetric_tryWithResources_stopTimerOnClose() throws Exception {
+    TimerMetricName metricName = new TimerMetricName();
+    MetricsTimer metricsTimer = metrics.createOrGetTimer(metricName.getMetricName());
+    // only closed, so it is declared outside of the resource specification
     TimerInProgress timerInProgress = metricsTimer.start();
-    try {
-      assertThatThrownBy(metricsTimer::start).isInstanceOf(IllegalStateException.class)
-          .hasMessageContaining("Timer sequence has already been started! Please stop it before start a new one.");
-    } finally {
-      timerInProgress.stop();
+    try (timerInProgress) {
+      Thread.sleep(10);
     }
+
+    waitForMetricsToPublish(metricName.getAwsCountMetricName(), 1, CollectionGroup.CATALOG_DATA_COLLECTOR, null);
+  }
+
+  @Test
+  void testTimerMetric_accessingSameTimerByName_returnsCachedTimer() {
+    TimerMetricName metricName = new TimerMetricName();
+    assertThat(metrics.createOrGetTimer(metricName.getMetricName())).isSameAs(metrics.createOrGetTimer(metricName.getMetricName()));
   }
 
   @Test
@@ -0,0 +1,75 @@
+package com.arthur.metrics.internal.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.AsyncRecordingConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.OverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AsyncRecordingPipelineTest {
+
+  @Test
+  void ringBuffer_offerUntilFull_rejectUntilDrained() {
+    RecordingRingBuffer subject = new RecordingRingBuffer(3);
+    List<Long> applied = new ArrayList<>();
+    AsyncRecordable target = (value, tags) -> applied.add(value);
+
+    assertEquals(4, subject.capacity());
+    for (int i = 0; i < 4; i++) {
+      assertTrue(subject.offer(target, i, null));
+    }
+    assertFalse(subject.offer(target, 4, null));
+    assertEquals(2, subject.drain(2));
+    assertTrue(subject.offer(target, 4, null));
+    assertEquals(3, subject.drain(Integer.MAX_VALUE));
+
+    assertEquals(List.of(0L, 1L, 2L, 3L, 4L), applied);
+  }
+
+  @Test
+  void record_concurrentProducersWithBlockPolicy_applyEveryRecording() throws Exception {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    Counter counter = meterRegistry.counter("requests");
+    AsyncRecordingConfig asyncRecordingConfig = new AsyncRecordingConfig();
+    asyncRecordingConfig.setBufferSize(64);
+    asyncRecordingConfig.setOverflowPolicy(OverflowPolicy.BLOCK);
+    AsyncRecordingPipeline subject = new AsyncRecordingPipeline(asyncRecordingConfig);
+    subject.bindTo(meterRegistry, Tags.empty());
+    AsyncRecordable target = (value, tags) -> counter.increment(value);
+
+    int producers = 4;
+    int recordingsPerProducer = 20_000;
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int i = 0; i < producers; i++) {
+      executor.execute(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        for (int j = 0; j < recordingsPerProducer; j++) {
+          subject.record(target, 1, null);
+        }
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    subject.close();
+
+    assertEquals(producers * recordingsPerProducer, counter.count());
+    assertEquals(0, meterRegistry.get(AsyncRecordingPipeline.DROPPED_METRIC_NAME).functionCounter().count());
+  }
+}
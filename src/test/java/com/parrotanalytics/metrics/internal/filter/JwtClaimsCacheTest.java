@@ -0,0 +1,86 @@
+package com.arthur.metrics.internal.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.JwtCacheConfig;
+import com.arthur.metrics.utils.TestUtils;
+import io.micrometer.core.instrument.MockClock;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class JwtClaimsCacheTest {
+
+  // expiration of the test tokens
+  private static final long EXP_IN_SECONDS = 3658402829L;
+
+  private MockClock clock;
+  private JwtCacheConfig jwtCacheConfig;
+
+  @BeforeEach
+  void setUp() {
+    clock = new MockClock();
+    jwtCacheConfig = new JwtCacheConfig();
+    jwtCacheConfig.setTtlInSeconds(60);
+  }
+
+  @Test
+  void getClaims_sameToken_returnCachedClaims() throws Exception {
+    JwtClaimsCache subject = new JwtClaimsCache(jwtCacheConfig, JwtTokenUtility::getClaimsFromJwtToken, clock);
+
+    JwtClaims claims = subject.getClaims(requestWithToken("jwt_all_attributes_present"));
+
+    assertEquals(1L, claims.getUserId());
+    assertEquals(99L, claims.getAccountId());
+    assertEquals("Parrot TestAccount", claims.getAccountName());
+    assertEquals(EXP_IN_SECONDS, claims.getExpiration());
+    assertSame(claims, subject.getClaims(requestWithToken("jwt_all_attributes_present")));
+  }
+
+  @Test
+  void getClaims_ttlElapsed_parseTokenAgain() throws Exception {
+    JwtClaimsCache subject = new JwtClaimsCache(jwtCacheConfig, JwtTokenUtility::getClaimsFromJwtToken, clock);
+    JwtClaims claims = subject.getClaims(requestWithToken("jwt_all_attributes_present"));
+
+    clock.add(Duration.ofSeconds(60));
+
+    assertNotSame(claims, subject.getClaims(requestWithToken("jwt_all_attributes_present")));
+  }
+
+  @Test
+  void getClaims_tokenExpiresBeforeTtl_parseTokenAgain() throws Exception {
+    jwtCacheConfig.setTtlInSeconds(Long.MAX_VALUE / 2000);
+    JwtClaimsCache subject = new JwtClaimsCache(jwtCacheConfig, JwtTokenUtility::getClaimsFromJwtToken, clock);
+    JwtClaims claims = subject.getClaims(requestWithToken("jwt_all_attributes_present"));
+
+    clock.add(Duration.ofSeconds(EXP_IN_SECONDS));
+
+    assertNotSame(claims, subject.getClaims(requestWithToken("jwt_all_attributes_present")));
+  }
+
+  @Test
+  void getClaims_cacheDisabled_parseEveryToken() throws Exception {
+    jwtCacheConfig.setEnabled(false);
+    JwtClaimsCache subject = new JwtClaimsCache(jwtCacheConfig, JwtTokenUtility::getClaimsFromJwtToken, clock);
+
+    assertNotSame(subject.getClaims(requestWithToken("jwt_all_attributes_present")), subject.getClaims(requestWithToken("jwt_all_attributes_present")));
+  }
+
+  @Test
+  void getClaims_invalidToken_throwInvalidJwtException() throws Exception {
+    JwtClaimsCache subject = new JwtClaimsCache(jwtCacheConfig, JwtTokenUtility::getClaimsFromJwtToken, clock);
+
+    assertThrows(InvalidJwtException.class, () -> subject.getClaims(requestWithToken("invalid_token")));
+    assertThrows(InvalidJwtException.class, () -> subject.getClaims(new MockHttpServletRequest()));
+  }
+
+  private static MockHttpServletRequest requestWithToken(String jwtTokenFileName) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader(JwtTokenUtility.AUTHORIZATION, JwtTokenUtility.BEARER_HEADER + TestUtils.getToken("security/" + jwtTokenFileName));
+    return request;
+  }
+}
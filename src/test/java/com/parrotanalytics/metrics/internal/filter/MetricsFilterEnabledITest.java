@@ -100,6 +100,22 @@ public class MetricsFilterEnabledITest extends AbstractITest {
         InstanceTypeTagValue.DATA_COLLECTOR, DeploymentEnvironment.PRODUCTION, expectedTags);
   }
 
+  @Test
+  void metricsTimer_success200HttpGetRequest_givenPathVariable_tagRoutePatternAsRequestUri() throws Exception {
+    final String countryCode = "NZ";
+    final String ipAddress = generateRandomIpAddress();
+    final String jwtToken = createValidToken("jwt_all_attributes_present");
+    List<Pair<String, String>> expectedTags = createTags(200, HttpMethod.GET, PATH_REQUEST + "/{titleId}", DEFAULT_ACCOUNT_NAME, ipAddress, countryCode, true);
+
+    this.mockMvc.perform(build(get(PATH_REQUEST + "/12345"), countryCode, ipAddress, jwtToken)).andExpect(status().isOk());
+    this.mockMvc.perform(build(get(PATH_REQUEST + "/67890"), countryCode, ipAddress, jwtToken)).andExpect(status().isOk());
+    waitForMetricsToPublish(TIMER_METRIC_NAME.getAwsCountMetricName(), 2, CollectionGroup.DIRECT_API_SERVICE, expectedTags);
+
+    assertEquals(9, expectedTags.size());
+    validateTimerMetricDurationAndDimensions(TIMER_METRIC_NAME, 2, DEFAULT_OP_DURATION_IN_MILLIS, DEFAULT_OP_DURATION_IN_MILLIS, CollectionGroup.DIRECT_API_SERVICE,
+        InstanceTypeTagValue.DATA_COLLECTOR, DeploymentEnvironment.PRODUCTION, expectedTags);
+  }
+
   @Test
   void metricsTimer_success202HttpPostRequest_givenValidTokenWithAllInfoAndNoCountryOrIPHeaders_populateAllMetrics() throws Exception {
     final String jwtToken = createValidToken("jwt_all_attributes_present");
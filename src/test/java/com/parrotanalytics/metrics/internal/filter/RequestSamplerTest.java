@@ -0,0 +1,45 @@
+package com.arthur.metrics.internal.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.SamplingConfig;
+import io.micrometer.core.instrument.MockClock;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class RequestSamplerTest {
+
+  @Test
+  void shouldSample_oneInN_sampleRateIsApproximatelyOneInN() {
+    SamplingConfig samplingConfig = new SamplingConfig();
+    samplingConfig.setSampleEvery(10);
+    RequestSampler subject = new RequestSampler(samplingConfig);
+
+    int sampled = 0;
+    for (int i = 0; i < 100_000; i++) {
+      sampled += subject.shouldSample() ? 1 : 0;
+    }
+
+    assertEquals(0.1, sampled / 100_000d, 0.01);
+  }
+
+  @Test
+  void shouldSample_maxSamplesPerSecond_limitSamplesPerSecond() {
+    SamplingConfig samplingConfig = new SamplingConfig();
+    samplingConfig.setSampleEvery(1);
+    samplingConfig.setMaxSamplesPerSecond(5);
+    MockClock clock = new MockClock();
+    RequestSampler subject = new RequestSampler(samplingConfig, clock);
+
+    int sampled = 0;
+    for (int i = 0; i < 20; i++) {
+      sampled += subject.shouldSample() ? 1 : 0;
+    }
+    clock.add(Duration.ofSeconds(1));
+    for (int i = 0; i < 20; i++) {
+      sampled += subject.shouldSample() ? 1 : 0;
+    }
+
+    assertEquals(10, sampled);
+  }
+}
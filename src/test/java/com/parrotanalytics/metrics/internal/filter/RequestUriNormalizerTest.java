@@ -0,0 +1,54 @@
+package com.arthur.metrics.internal.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.RestApiConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.UriTemplateConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+class RequestUriNormalizerTest {
+
+  @Test
+  void normalize_givenRoutePattern_useRoutePattern() {
+    RequestUriNormalizer subject = new RequestUriNormalizer(new RestApiConfig());
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/titles/12345");
+    request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/titles/{titleId}");
+
+    assertEquals("/titles/{titleId}", subject.normalize(request));
+  }
+
+  @Test
+  void normalize_givenNoRoutePattern_replaceIdSegments() {
+    RequestUriNormalizer subject = new RequestUriNormalizer(new RestApiConfig());
+
+    assertEquals("/titles/{id}", subject.normalize(new MockHttpServletRequest("GET", "/titles/12345")));
+    assertEquals("/titles/{id}/episodes/{id}", subject.normalize("/titles/3fa85f64-5717-4562-b3fc-2c963f66afa6/episodes/7"));
+    assertEquals("/hashes/{id}/", subject.normalize("/hashes/5904ebafd9541b7809031c36cfe5c45e/"));
+    assertEquals("/titles/v2/search", subject.normalize("/titles/v2/search"));
+    assertEquals("/", subject.normalize("/"));
+  }
+
+  @Test
+  void normalize_givenMatchingUriTemplate_applyTemplateBeforeIdSegments() {
+    RestApiConfig restApiConfig = new RestApiConfig();
+    UriTemplateConfig uriTemplateConfig = new UriTemplateConfig();
+    uriTemplateConfig.setPattern("^/talent/([a-z]+)/[^/]+$");
+    uriTemplateConfig.setTemplate("/talent/$1/{name}");
+    restApiConfig.getUriTemplates().add(uriTemplateConfig);
+    RequestUriNormalizer subject = new RequestUriNormalizer(restApiConfig);
+
+    assertEquals("/talent/actors/{name}", subject.normalize("/talent/actors/jane-doe"));
+    assertEquals("/talent/{id}", subject.normalize("/talent/42"));
+  }
+
+  @Test
+  void normalize_givenIdSegmentsDisabled_keepRawUri() {
+    RestApiConfig restApiConfig = new RestApiConfig();
+    restApiConfig.setNormalizeIdSegments(false);
+    RequestUriNormalizer subject = new RequestUriNormalizer(restApiConfig);
+
+    assertEquals("/titles/12345", subject.normalize("/titles/12345"));
+  }
+}
@@ -0,0 +1,71 @@
+package com.arthur.metrics.internal.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.arthur.metrics.utils.TestUtils;
+import io.micrometer.core.instrument.MockClock;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class StreamingJwtClaimsParserTest {
+
+  private final StreamingJwtClaimsParser subject = new StreamingJwtClaimsParser();
+
+  @ParameterizedTest
+  @ValueSource(strings = {"jwt_all_attributes_present", "jwt_missing_accountName", "jwt_missing_userIdAndAccountId"})
+  void parse_givenTestTokens_sameClaimsAsJjwt(String jwtTokenFileName) throws Exception {
+    String jwtToken = TestUtils.getToken("security/" + jwtTokenFileName).trim();
+
+    assertEquals(JwtTokenUtility.getClaimsFromJwtToken(jwtToken), subject.parse(jwtToken));
+  }
+
+  @Test
+  void parse_givenEscapesNestedValuesAndNumbersAsStrings_extractClaims() throws Exception {
+    JwtClaims claims = subject.parse(token("{\"roles\":[\"a\",{\"b\":\"}\"}],\"internal_account_name\":\"Parrot \\\"Test\\\" \\u00c5ccount\","
+        + " \"internal_user_id\" : \"12\", \"internal_account_id\":9.0e1, \"active\":true, \"exp\":null}"));
+
+    assertEquals("Parrot \"Test\" \u00c5ccount", claims.getAccountName());
+    assertEquals(12L, claims.getUserId());
+    assertEquals(90L, claims.getAccountId());
+    assertNull(claims.getExpiration());
+  }
+
+  @Test
+  void parse_givenNonAsciiAccountName_decodeUtf8() throws Exception {
+    assertEquals("Café ☕", subject.parse(token("{\"internal_account_name\":\"Café ☕\"}")).getAccountName());
+  }
+
+  @Test
+  void parse_givenInvalidTokens_throwInvalidJwtException() throws Exception {
+    String invalidToken = TestUtils.getToken("security/invalid_token").trim();
+
+    assertThrows(InvalidJwtException.class, () -> subject.parse(invalidToken));
+    assertThrows(InvalidJwtException.class, () -> subject.parse("no-dots"));
+    assertThrows(InvalidJwtException.class, () -> subject.parse("header.pay*load.signature"));
+    assertThrows(InvalidJwtException.class, () -> subject.parse(token("{\"internal_user_id\":1")));
+    assertThrows(InvalidJwtException.class, () -> subject.parse(token("{\"internal_user_id\":1.5}")));
+    assertThrows(InvalidJwtException.class, () -> subject.parse(token("[]")));
+  }
+
+  @Test
+  void parse_givenExpiredToken_throwInvalidJwtException() throws Exception {
+    MockClock clock = new MockClock();
+    clock.add(Duration.ofSeconds(1000));
+    StreamingJwtClaimsParser subject = new StreamingJwtClaimsParser(clock);
+
+    assertEquals(1001L, subject.parse(token("{\"exp\":1001}")).getExpiration());
+    assertThrows(InvalidJwtException.class, () -> subject.parse(token("{\"exp\":1000}")));
+  }
+
+  private static String token(String payload) {
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    return encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+        + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".";
+  }
+}
@@ -0,0 +1,59 @@
+package com.arthur.metrics.internal.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.arthur.metrics.config.ArthurMetricsProperties;
+import com.arthur.metrics.internal.MetricsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class SelfMetricsTest {
+
+  @Test
+  void topMetricNamesBySeriesCount_severalMetrics_descendingBySeriesCount() {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SelfMetrics subject = new SelfMetrics();
+    subject.monitor(meterRegistry);
+    for (int i = 0; i < 3; i++) {
+      meterRegistry.counter("restapi.requests", "user", "user" + i);
+    }
+    meterRegistry.counter("jobs.completed");
+    meterRegistry.counter("cache.misses", "cache", "a");
+    meterRegistry.counter("cache.misses", "cache", "b");
+
+    Map<String, Integer> topMetricNames = subject.topMetricNamesBySeriesCount(2);
+
+    assertEquals(List.of("restapi.requests", "cache.misses"), List.copyOf(topMetricNames.keySet()));
+    assertEquals(List.of(3, 2), List.copyOf(topMetricNames.values()));
+    assertEquals(6, subject.seriesCount());
+  }
+
+  @Test
+  void bindTo_measurementsRecorded_publishCountersAndFilterOverheadTimer() {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SelfMetrics subject = new SelfMetrics();
+    subject.bindTo(new MetricsServiceImpl(meterRegistry, "app", new ArthurMetricsProperties()));
+    subject.recordRequest(20, 1000);
+    subject.recordRequest(10, 500);
+    subject.recordFailedDatums(5, false);
+    subject.recordFailedDatums(2, true);
+    subject.recordPublish(TimeUnit.MILLISECONDS.toNanos(3));
+    subject.recordFilterOverhead(TimeUnit.MICROSECONDS.toNanos(10));
+    subject.recordFilterOverhead(TimeUnit.MICROSECONDS.toNanos(30));
+
+    assertEquals(2, meterRegistry.get(SelfMetrics.PUBLISH_REQUESTS_METRIC_NAME).functionCounter().count());
+    assertEquals(30, meterRegistry.get(SelfMetrics.PUBLISH_DATUMS_METRIC_NAME).functionCounter().count());
+    assertEquals(1500, meterRegistry.get(SelfMetrics.PUBLISH_REQUEST_BYTES_METRIC_NAME).functionCounter().count());
+    assertEquals(7, meterRegistry.get(SelfMetrics.FAILED_DATUMS_METRIC_NAME).functionCounter().count());
+    assertEquals(2, meterRegistry.get(SelfMetrics.DROPPED_DATUMS_METRIC_NAME).functionCounter().count());
+    assertEquals(3, meterRegistry.get(SelfMetrics.PUBLISH_DURATION_METRIC_NAME).functionCounter().count());
+    Timer filterOverhead = meterRegistry.get(SelfMetrics.FILTER_OVERHEAD_METRIC_NAME).timer();
+    assertEquals(2, filterOverhead.count());
+    assertEquals(20, filterOverhead.mean(TimeUnit.MICROSECONDS));
+  }
+}
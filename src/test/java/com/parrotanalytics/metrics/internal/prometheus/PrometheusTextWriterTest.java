@@ -0,0 +1,64 @@
+package com.arthur.metrics.internal.prometheus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class PrometheusTextWriterTest {
+
+  private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT, new CollectorRegistry(), new MockClock());
+  private final PrometheusTextWriter subject = new PrometheusTextWriter(registry);
+
+  @Test
+  void write_meters_writeSameSamplesAsRegistryScrape() throws IOException {
+    Counter.builder("requests").tag("Application Name", "app").tag("path", "/a\"b\\c").register(registry).increment(3);
+    registry.gauge("queue.size", List.of(), 7);
+    Timer timer = Timer.builder("latency").tag("Application Name", "app").publishPercentiles(0.5, 0.99).register(registry);
+    timer.record(10, TimeUnit.MILLISECONDS);
+    timer.record(30, TimeUnit.MILLISECONDS);
+    DistributionSummary.builder("payload.size").serviceLevelObjectives(100, 1000).register(registry).record(500);
+
+    String exposition = write();
+
+    assertEquals(samples(registry.scrape()), samples(exposition));
+    assertTrue(exposition.contains("# TYPE latency_seconds summary\n"));
+    assertTrue(exposition.contains("# TYPE payload_size histogram\n"));
+    assertTrue(exposition.contains("requests_total{Application_Name=\"app\",path=\"/a\\\"b\\\\c\"} 3.0\n"));
+  }
+
+  @Test
+  void write_meterRemoved_notWrittenAnymore() throws IOException {
+    Counter counter = registry.counter("requests", "path", "/a");
+    registry.counter("requests", "path", "/b").increment();
+    write();
+
+    registry.remove(counter);
+
+    assertEquals(Set.of("requests_total{path=\"/b\"} 1.0"), samples(write()));
+  }
+
+  private String write() throws IOException {
+    StringWriter writer = new StringWriter();
+    subject.write(writer);
+    return writer.toString();
+  }
+
+  // the simpleclient ends labels with an optional trailing comma
+  private static Set<String> samples(String exposition) {
+    return exposition.lines().filter(line -> !line.startsWith("#")).map(line -> line.replace(",}", "}")).collect(Collectors.toSet());
+  }
+}
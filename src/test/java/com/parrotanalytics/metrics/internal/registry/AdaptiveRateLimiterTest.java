@@ -0,0 +1,49 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.SchedulerConfig;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveRateLimiterTest {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  @Test
+  void acquire_burstUsed_refillAtRate() throws InterruptedException {
+    SchedulerConfig schedulerConfig = new SchedulerConfig();
+    schedulerConfig.setMaxRequestsPerSecond(10);
+    schedulerConfig.setBurstRequests(2);
+    AdaptiveRateLimiter subject = new AdaptiveRateLimiter(schedulerConfig, nanoTime::get);
+
+    assertTrue(subject.acquire(nanoTime.get()));
+    assertTrue(subject.acquire(nanoTime.get()));
+    assertFalse(subject.acquire(nanoTime.get()));
+    nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+    assertTrue(subject.acquire(nanoTime.get()));
+    assertFalse(subject.acquire(nanoTime.get()));
+  }
+
+  @Test
+  void onThrottled_concurrentThrottling_decreaseOncePerSecondAndRecover() {
+    SchedulerConfig schedulerConfig = new SchedulerConfig();
+    schedulerConfig.setMaxRequestsPerSecond(16);
+    AdaptiveRateLimiter subject = new AdaptiveRateLimiter(schedulerConfig, nanoTime::get);
+
+    subject.onThrottled();
+    subject.onThrottled();
+    assertEquals(8, subject.getRequestsPerSecond());
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    subject.onThrottled();
+    assertEquals(4, subject.getRequestsPerSecond());
+
+    for (int i = 0; i < 4; i++) {
+      subject.onSuccess();
+    }
+    assertEquals(5, subject.getRequestsPerSecond(), 0.1);
+  }
+}
@@ -0,0 +1,260 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.PublisherConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.SketchConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.TimerEncoding;
+import io.micrometer.cloudwatch2.CloudWatchConfig;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataResponse;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
+
+class ArthurCloudWatchMeterRegistryTest {
+
+  private static final Duration STEP = Duration.ofMinutes(1);
+
+  private final List<PutMetricDataRequest> requests = new CopyOnWriteArrayList<>();
+  private MockClock clock;
+  private ArthurCloudWatchMeterRegistry subject;
+
+  @BeforeEach
+  void setUp() {
+    clock = new MockClock();
+    subject = registry(new PublisherConfig());
+  }
+
+  private ArthurCloudWatchMeterRegistry registry(PublisherConfig publisherConfig) {
+    SketchConfig sketchConfig = new SketchConfig();
+    sketchConfig.getMetricNames().add("latency");
+    return new ArthurCloudWatchMeterRegistry(cloudWatchConfig(), clock, new CloudWatchAsyncClient() {
+      @Override
+      public CompletableFuture<PutMetricDataResponse> putMetricData(PutMetricDataRequest putMetricDataRequest) {
+        requests.add(putMetricDataRequest);
+        return CompletableFuture.completedFuture(PutMetricDataResponse.builder().build());
+      }
+
+      @Override
+      public String serviceName() {
+        return "cloudwatch";
+      }
+
+      @Override
+      public void close() {
+      }
+    }, sketchConfig, publisherConfig);
+  }
+
+  @AfterEach
+  void tearDown() {
+    subject.close();
+  }
+
+  @Test
+  void publish_sketchTimer_publishDistributionOfPreviousStep() {
+    for (int i = 0; i < 10; i++) {
+      subject.timer("latency", "Application Name", "app").record(10, TimeUnit.MILLISECONDS);
+    }
+    subject.timer("latency", "Application Name", "app").record(1, TimeUnit.SECONDS);
+    subject.timer("other").record(10, TimeUnit.MILLISECONDS);
+    clock.add(STEP);
+    requests.clear();
+
+    subject.publish();
+
+    List<MetricDatum> distributions = distributions();
+    assertEquals(1, distributions.size());
+    MetricDatum distribution = distributions.get(0);
+    assertEquals("latency" + ArthurCloudWatchMeterRegistry.DISTRIBUTION_SUFFIX, distribution.metricName());
+    assertEquals(StandardUnit.MILLISECONDS, distribution.unit());
+    assertEquals("app", distribution.dimensions().get(0).value());
+    assertEquals(List.of(10d, 1d), distribution.counts());
+    assertEquals(10, distribution.values().get(0), 0.5);
+    assertEquals(1000, distribution.values().get(1), 50);
+    assertTrue(requests.stream().flatMap(request -> request.metricData().stream()).anyMatch(datum -> datum.metricName().equals("latency.count")));
+
+    // the step has been drained
+    clock.add(STEP);
+    requests.clear();
+    subject.publish();
+    assertEquals(0, distributions().size());
+  }
+
+  @Test
+  void publish_splitEncoding_publishTimerAsSeparateMetrics() {
+    subject.timer("other").record(10, TimeUnit.MILLISECONDS);
+    subject.timer("other").record(30, TimeUnit.MILLISECONDS);
+    clock.add(STEP);
+    requests.clear();
+
+    subject.publish();
+
+    Map<String, Double> values = metricData().stream().collect(Collectors.toMap(MetricDatum::metricName, MetricDatum::value));
+    assertEquals(Map.of("other.sum", 40d, "other.count", 2d, "other.avg", 20d, "other.max", 30d), values);
+  }
+
+  @Test
+  void publish_statisticSetEncoding_publishTimerAsSingleDatum() {
+    subject.close();
+    PublisherConfig publisherConfig = new PublisherConfig();
+    publisherConfig.setTimerEncoding(TimerEncoding.STATISTIC_SET);
+    subject = registry(publisherConfig);
+    subject.timer("other").record(10, TimeUnit.MILLISECONDS);
+    subject.timer("other").record(30, TimeUnit.MILLISECONDS);
+    subject.timer("idle");
+    clock.add(STEP);
+    requests.clear();
+
+    subject.publish();
+
+    List<MetricDatum> metricData = metricData();
+    assertEquals(1, metricData.size());
+    MetricDatum datum = metricData.get(0);
+    assertEquals("other", datum.metricName());
+    assertEquals(StandardUnit.MILLISECONDS, datum.unit());
+    assertEquals(StatisticSet.builder().sampleCount(2d).sum(40d).minimum(10d).maximum(30d).build(), datum.statisticValues());
+  }
+
+  @Test
+  void publish_highResolutionTimer_publishStatisticSetPerSecond() {
+    subject.enableHighResolution("fast");
+    subject.timer("fast").record(10, TimeUnit.MILLISECONDS);
+    subject.timer("fast").record(30, TimeUnit.MILLISECONDS);
+    clock.add(Duration.ofSeconds(5));
+    subject.timer("fast").record(20, TimeUnit.MILLISECONDS);
+    clock.add(STEP);
+    requests.clear();
+
+    subject.publish();
+
+    List<MetricDatum> metricData = metricData();
+    assertEquals(2, metricData.size());
+    assertEquals(List.of(Instant.ofEpochSecond(0), Instant.ofEpochSecond(5)), metricData.stream().map(MetricDatum::timestamp).collect(Collectors.toList()));
+    assertEquals(StatisticSet.builder().sampleCount(2d).sum(40d).minimum(10d).maximum(30d).build(), metricData.get(0).statisticValues());
+    assertEquals(StatisticSet.builder().sampleCount(1d).sum(20d).minimum(20d).maximum(20d).build(), metricData.get(1).statisticValues());
+    assertTrue(metricData.stream().allMatch(datum -> datum.metricName().equals("fast") && datum.storageResolution() == 1));
+  }
+
+  @Test
+  void publish_meterWithLongerStep_publishOnceStepOfTierCompleted() {
+    subject.publishWithStep("collector.rows", Duration.ofMinutes(5));
+    subject.counter("collector.rows").increment(3);
+    subject.counter("other").increment();
+    clock.add(STEP);
+    requests.clear();
+
+    subject.publish();
+
+    assertEquals(List.of("other.count"), metricData().stream().map(MetricDatum::metricName).collect(Collectors.toList()));
+
+    subject.counter("collector.rows").increment(2);
+    clock.add(STEP.multipliedBy(4));
+    requests.clear();
+    subject.publish();
+
+    Map<String, Double> values = metricData().stream().collect(Collectors.toMap(MetricDatum::metricName, MetricDatum::value));
+    assertEquals(Map.of("collector.rows.count", 5d, "other.count", 0d), values);
+  }
+
+  @Test
+  void publish_skipIdleSeries_publishIdleSeriesOnlyAsHeartbeat() {
+    subject.close();
+    PublisherConfig publisherConfig = new PublisherConfig();
+    publisherConfig.getIdleSeries().setSkipped(true);
+    publisherConfig.getIdleSeries().setHeartbeatSteps(3);
+    subject = registry(publisherConfig);
+    subject.counter("idle");
+    subject.timer("idle.timer");
+    subject.counter("busy").increment();
+    clock.add(STEP);
+    requests.clear();
+
+    subject.publish();
+
+    assertEquals(List.of("busy.count"), metricData().stream().map(MetricDatum::metricName).collect(Collectors.toList()));
+
+    clock.add(STEP.multipliedBy(2));
+    requests.clear();
+    subject.publish();
+
+    assertEquals(Set.of("idle.count", "idle.timer.count", "idle.timer.sum", "busy.count"),
+        metricData().stream().map(MetricDatum::metricName).collect(Collectors.toSet()));
+  }
+
+  @Test
+  void publish_skipIdleSeries_skipPercentilesOfIdleTimer() {
+    subject.close();
+    PublisherConfig publisherConfig = new PublisherConfig();
+    publisherConfig.getIdleSeries().setSkipped(true);
+    publisherConfig.getIdleSeries().setHeartbeatSteps(3);
+    subject = registry(publisherConfig);
+    Timer.builder("idle.timer").publishPercentiles(0.99).register(subject);
+    Timer.builder("busy.timer").publishPercentiles(0.99).register(subject).record(Duration.ofMillis(5));
+    clock.add(STEP);
+    requests.clear();
+
+    subject.publish();
+
+    Set<String> names = metricData().stream().map(MetricDatum::metricName).collect(Collectors.toSet());
+    assertTrue(names.contains("busy.timer.percentile.value"), names.toString());
+    assertTrue(names.stream().noneMatch(name -> name.startsWith("idle.timer")), names.toString());
+
+    clock.add(STEP.multipliedBy(2));
+    requests.clear();
+    subject.publish();
+
+    assertTrue(metricData().stream().anyMatch(datum -> datum.metricName().equals("idle.timer.percentile.value")));
+  }
+
+  @Test
+  void publish_manyMeters_packDatumsUpToRequestLimit() {
+    subject.close();
+    PublisherConfig publisherConfig = new PublisherConfig();
+    publisherConfig.setMaxDatumsPerRequest(2);
+    subject = registry(publisherConfig);
+    for (int i = 0; i < 5; i++) {
+      subject.counter("counter" + i).increment();
+    }
+    clock.add(STEP);
+    requests.clear();
+
+    subject.publish();
+
+    assertEquals(3, requests.size());
+    assertEquals(5, metricData().size());
+  }
+
+  private List<MetricDatum> metricData() {
+    return requests.stream().flatMap(request -> request.metricData().stream()).collect(Collectors.toList());
+  }
+
+  private List<MetricDatum> distributions() {
+    return requests.stream()
+        .flatMap(request -> request.metricData().stream())
+        .filter(datum -> datum.metricName().endsWith(ArthurCloudWatchMeterRegistry.DISTRIBUTION_SUFFIX))
+        .collect(Collectors.toList());
+  }
+
+  private static CloudWatchConfig cloudWatchConfig() {
+    Map<String, String> configuration = Map.of("cloudwatch.namespace", "test", "cloudwatch.step", STEP.toString());
+    return configuration::get;
+  }
+}
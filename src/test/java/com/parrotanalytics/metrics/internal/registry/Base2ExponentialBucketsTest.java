@@ -0,0 +1,41 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class Base2ExponentialBucketsTest {
+
+  @Test
+  void of_givenRange_useHighestScaleThatFitsBudget() {
+    // 16 octaves, 8 buckets per octave at scale 3
+    Base2ExponentialBuckets subject = Base2ExponentialBuckets.of(1, 65536, 128);
+
+    assertEquals(3, subject.scale());
+    assertEquals(128, subject.bucketCount());
+  }
+
+  @Test
+  void index_givenValues_boundedRelativeError() {
+    Base2ExponentialBuckets subject = Base2ExponentialBuckets.of(1, 65536, 128);
+
+    assertEquals(0, subject.index(0.5));
+    assertEquals(0, subject.index(1));
+    assertEquals(7, subject.index(2));
+    assertEquals(8, subject.index(2.0001));
+    assertEquals(127, subject.index(1e9));
+    for (double value = 1.01; value < 65536; value *= 1.37) {
+      double representativeValue = subject.representativeValue(subject.index(value));
+      assertTrue(Math.abs(representativeValue - value) / value < 0.05, "relative error of " + value);
+    }
+  }
+
+  @Test
+  void of_givenInvalidRange_throwIllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> Base2ExponentialBuckets.of(0, 1, 10));
+    assertThrows(IllegalArgumentException.class, () -> Base2ExponentialBuckets.of(2, 1, 10));
+    assertThrows(IllegalArgumentException.class, () -> Base2ExponentialBuckets.of(1, 2, 0));
+  }
+}
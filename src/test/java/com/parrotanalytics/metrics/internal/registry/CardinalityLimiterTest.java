@@ -0,0 +1,62 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.CardinalityConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CardinalityLimiterTest {
+
+  private static final String BASE_TAG = "Application Name";
+
+  private MeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setUp() {
+    CardinalityConfig cardinalityConfig = new CardinalityConfig();
+    cardinalityConfig.setMaxTagSetsPerMetric(2);
+    cardinalityConfig.getMetricLimits().put("unlimited", 0);
+    meterRegistry = new SimpleMeterRegistry();
+    meterRegistry.config().meterFilter(new CardinalityLimiter(meterRegistry, cardinalityConfig, Set.of(BASE_TAG)));
+  }
+
+  @Test
+  void counter_exceedLimit_collapseIntoOverflowSeries() {
+    for (int i = 0; i < 5; i++) {
+      meterRegistry.counter("requests", BASE_TAG, "app", "User Id", "user-" + i).increment();
+    }
+    // an existing tag set is still accepted once the limit is reached
+    meterRegistry.counter("requests", BASE_TAG, "app", "User Id", "user-0").increment();
+    // a collapsed tag set that is looked up again is not counted again
+    meterRegistry.counter("requests", BASE_TAG, "app", "User Id", "user-4").increment();
+
+    assertEquals(2, meterRegistry.get("requests").tag("User Id", "user-0").counter().count());
+    assertEquals(1, meterRegistry.get("requests").tag("User Id", "user-1").counter().count());
+    assertEquals(4, meterRegistry.get("requests").tags(BASE_TAG, "app", "User Id", CardinalityLimiter.OVERFLOW_TAG_VALUE).counter().count());
+    assertEquals(3, meterRegistry.get("requests").counters().size());
+
+    FunctionCounter overflowCounter = meterRegistry.get(CardinalityLimiter.OVERFLOW_METRIC_NAME)
+        .tags(BASE_TAG, "app", CardinalityLimiter.TAG_METRIC_NAME, "requests").functionCounter();
+    assertNotNull(overflowCounter);
+    assertEquals(3, overflowCounter.count());
+  }
+
+  @Test
+  void counter_limitIsPerMetric_otherMetricsAreNotCollapsed() {
+    for (int i = 0; i < 3; i++) {
+      meterRegistry.counter("requests", "User Id", "user-" + i).increment();
+      meterRegistry.counter("logins", "User Id", "user-" + i).increment();
+      meterRegistry.counter("unlimited", "User Id", "user-" + i).increment();
+    }
+
+    assertEquals(1, meterRegistry.get("requests").tag("User Id", CardinalityLimiter.OVERFLOW_TAG_VALUE).counter().count());
+    assertEquals(1, meterRegistry.get("logins").tag("User Id", CardinalityLimiter.OVERFLOW_TAG_VALUE).counter().count());
+    assertEquals(3, meterRegistry.get("unlimited").counters().size());
+  }
+}
@@ -0,0 +1,191 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.PublisherConfig;
+import io.micrometer.core.instrument.Tag;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.cloudwatch.model.CloudWatchException;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataResponse;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+class CloudWatchPublisherTest {
+
+  private final List<PutMetricDataRequest> requests = new CopyOnWriteArrayList<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  @Test
+  void publish_sizeLimit_splitRequestsBelowLimit() {
+    List<MetricDatum> metricData = metricData(100);
+    int maxRequestSize = 10 * CloudWatchPublisher.estimateSize(metricData.get(0)) + 1000;
+    PublisherConfig publisherConfig = new PublisherConfig();
+    publisherConfig.setMaxRequestSizeInBytes(maxRequestSize);
+
+    new CloudWatchPublisher(client(0), "test", publisherConfig, Duration.ofSeconds(10)).publish(metricData, Duration.ofSeconds(10));
+
+    assertEquals(100, requests.stream().mapToInt(request -> request.metricData().size()).sum());
+    assertTrue(requests.size() <= 10, requests.size() + " requests");
+    for (PutMetricDataRequest request : requests) {
+      int size = request.metricData().stream().mapToInt(CloudWatchPublisher::estimateSize).sum();
+      assertTrue(size <= maxRequestSize, "request of " + size + " bytes");
+    }
+  }
+
+  @Test
+  void publish_slowRequests_limitRequestsInFlight() {
+    PublisherConfig publisherConfig = new PublisherConfig();
+    publisherConfig.setMaxDatumsPerRequest(1);
+    publisherConfig.setMaxInFlightRequests(3);
+
+    new CloudWatchPublisher(client(20), "test", publisherConfig, Duration.ofSeconds(10)).publish(metricData(12), Duration.ofSeconds(10));
+
+    assertEquals(12, requests.size());
+    assertEquals(3, maxInFlight.get());
+    assertEquals(0, inFlight.get());
+  }
+
+  @Test
+  void endStep_throttled_spoolAndReplayWithOriginalTimestamps(@TempDir Path directory) throws IOException {
+    PublisherConfig publisherConfig = new PublisherConfig();
+    publisherConfig.setMaxDatumsPerRequest(1);
+    AtomicInteger failures = new AtomicInteger(2);
+    CloudWatchAsyncClient client = client(0, () -> failures.getAndDecrement() > 0
+        ? CloudWatchException.builder().statusCode(400).awsErrorDetails(AwsErrorDetails.builder().errorCode("Throttling").build()).build()
+        : null);
+    List<Tag> tags = List.of(Tag.of("Application Name", "app"));
+    long step = System.currentTimeMillis() / 60000 * 60000;
+
+    try (MetricSpool spool = new MetricSpool(directory.resolve("metrics.spool"), 1024 * 1024)) {
+      CloudWatchPublisher subject = new CloudWatchPublisher(client, "test", publisherConfig, Duration.ofSeconds(10), spool, null, null);
+      subject.beginStep(step - 60000);
+      subject.add("requests", ".count", tags, StandardUnit.COUNT, 1);
+      subject.add("errors", ".count", tags, StandardUnit.COUNT, 2);
+      subject.endStep();
+      assertEquals(2, spool.size());
+
+      subject.beginStep(step);
+      subject.add("requests", ".count", tags, StandardUnit.COUNT, 3);
+      subject.endStep();
+
+      assertEquals(0, spool.size());
+    }
+    List<String> sent = sent(requests.subList(2, requests.size()), step);
+    assertEquals("requests.count@0=3.0", sent.get(0));
+    // the failed requests of a step complete, and are spooled, in any order
+    assertEquals(Set.of("requests.count@60000=1.0", "errors.count@60000=2.0"), Set.copyOf(sent.subList(1, sent.size())));
+    assertEquals(3, sent.size());
+  }
+
+  @Test
+  void endStep_replayOutlivesStep_waitForRemainingTimeAndRemoveBatchOnceSent(@TempDir Path directory) throws Exception {
+    PublisherConfig publisherConfig = new PublisherConfig();
+    AtomicInteger failures = new AtomicInteger(1);
+    // the request of the second step takes most of the step, and the replayed request longer than the step
+    CloudWatchAsyncClient client = client(() -> requests.size() == 2 ? 200 : requests.size() == 3 ? 500 : 0, () -> failures.getAndDecrement() > 0
+        ? CloudWatchException.builder().statusCode(400).awsErrorDetails(AwsErrorDetails.builder().errorCode("Throttling").build()).build()
+        : null);
+    List<Tag> tags = List.of(Tag.of("Application Name", "app"));
+    long step = System.currentTimeMillis() / 60000 * 60000;
+    Duration timeout = Duration.ofMillis(300);
+
+    try (MetricSpool spool = new MetricSpool(directory.resolve("metrics.spool"), 1024 * 1024)) {
+      CloudWatchPublisher subject = new CloudWatchPublisher(client, "test", publisherConfig, timeout, spool, null, null);
+      subject.beginStep(step - 120000);
+      subject.add("requests", ".count", tags, StandardUnit.COUNT, 1);
+      subject.endStep();
+      assertEquals(1, spool.size());
+
+      long startNanos = System.nanoTime();
+      subject.beginStep(step - 60000);
+      subject.add("requests", ".count", tags, StandardUnit.COUNT, 2);
+      subject.endStep();
+      assertTrue(System.nanoTime() - startNanos < timeout.plusMillis(150).toNanos(), "replay did not stop at the end of the step");
+      assertEquals(1, spool.size());
+
+      Thread.sleep(600);
+      assertEquals(0, spool.size());
+      subject.beginStep(step);
+      subject.add("requests", ".count", tags, StandardUnit.COUNT, 3);
+      subject.endStep();
+    }
+    assertEquals(List.of("requests.count@120000=1.0", "requests.count@60000=2.0", "requests.count@120000=1.0", "requests.count@0=3.0"),
+        sent(requests, step));
+  }
+
+  private static List<String> sent(List<PutMetricDataRequest> requests, long step) {
+    return requests.stream()
+        .map(request -> request.metricData().get(0))
+        .map(datum -> datum.metricName() + "@" + (step - datum.timestamp().toEpochMilli()) + "=" + datum.value())
+        .collect(Collectors.toList());
+  }
+
+  private static List<MetricDatum> metricData(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> MetricDatum.builder()
+            .metricName(String.format("metric%03d.count", i))
+            .dimensions(Dimension.builder().name("Application Name").value("app").build())
+            .value(1d)
+            .build())
+        .collect(Collectors.toList());
+  }
+
+  private CloudWatchAsyncClient client(long latencyMillis) {
+    return client(latencyMillis, () -> null);
+  }
+
+  private CloudWatchAsyncClient client(long latencyMillis, Supplier<RuntimeException> failure) {
+    return client(() -> latencyMillis, failure);
+  }
+
+  /**
+   * Stand-in for CloudWatch, which answers a request after the latency of the supplier, and fails it with the exception of the supplier, if any.
+   */
+  private CloudWatchAsyncClient client(LongSupplier latencyMillis, Supplier<RuntimeException> failure) {
+    return new CloudWatchAsyncClient() {
+      @Override
+      public CompletableFuture<PutMetricDataResponse> putMetricData(PutMetricDataRequest putMetricDataRequest) {
+        requests.add(putMetricDataRequest);
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        RuntimeException exception = failure.get();
+        long latency = latencyMillis.getAsLong();
+        return CompletableFuture.supplyAsync(() -> {
+          inFlight.decrementAndGet();
+          if (exception != null) {
+            throw exception;
+          }
+          return PutMetricDataResponse.builder().build();
+        }, CompletableFuture.delayedExecutor(latency, TimeUnit.MILLISECONDS));
+      }
+
+      @Override
+      public String serviceName() {
+        return "cloudwatch";
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+}
@@ -0,0 +1,83 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.PublisherConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.SketchConfig;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.micrometer.cloudwatch2.CloudWatchConfig;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Tag;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+class EmfPublisherTest {
+
+  private static final Duration STEP = Duration.ofMinutes(1);
+
+  private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+  @Test
+  void publish_timer_writeOneLogEventPerMeter() {
+    MockClock clock = new MockClock();
+    Map<String, String> configuration = Map.of("cloudwatch.namespace", "test-namespace", "cloudwatch.step", STEP.toString());
+    CloudWatchConfig cloudWatchConfig = configuration::get;
+    ArthurCloudWatchMeterRegistry registry = new ArthurCloudWatchMeterRegistry(cloudWatchConfig, clock, new EmfPublisher("test-namespace", output),
+        new SketchConfig(), new PublisherConfig());
+    registry.timer("latency", "Application Name", "app").record(10, TimeUnit.MILLISECONDS);
+    registry.timer("latency", "Application Name", "app").record(30, TimeUnit.MILLISECONDS);
+    registry.counter("requests", "Application Name", "app").increment();
+    clock.add(STEP);
+
+    registry.publish();
+    List<JsonObject> events = events();
+    registry.close();
+
+    JsonObject timer = events.stream().filter(event -> event.has("latency.sum")).findFirst().orElseThrow();
+    JsonObject metadata = timer.getAsJsonObject("_aws");
+    assertEquals(clock.wallTime(), metadata.get("Timestamp").getAsLong());
+    JsonObject directive = metadata.getAsJsonArray("CloudWatchMetrics").get(0).getAsJsonObject();
+    assertEquals("test-namespace", directive.get("Namespace").getAsString());
+    assertEquals("[[\"Application Name\"]]", directive.get("Dimensions").toString());
+    assertEquals("[{\"Name\":\"latency.sum\",\"Unit\":\"Milliseconds\"},{\"Name\":\"latency.count\",\"Unit\":\"Count\"},"
+        + "{\"Name\":\"latency.avg\",\"Unit\":\"Milliseconds\"},{\"Name\":\"latency.max\",\"Unit\":\"Milliseconds\"}]", directive.get("Metrics").toString());
+    assertEquals("app", timer.get("Application Name").getAsString());
+    assertEquals(40, timer.get("latency.sum").getAsDouble());
+    assertEquals(2, timer.get("latency.count").getAsDouble());
+    assertEquals(30, timer.get("latency.max").getAsDouble());
+    assertEquals(1, events.stream().filter(event -> event.has("requests.count")).count());
+  }
+
+  @Test
+  void add_moreMetricsThanPerEvent_splitEventsAndEscapeStrings() {
+    EmfPublisher subject = new EmfPublisher("namespace", output);
+    List<Tag> tags = List.of(Tag.of("Account Name", "\"Café\"\n"));
+
+    subject.beginStep(1000);
+    for (int i = 0; i < EmfPublisher.MAX_METRICS_PER_LINE + 1; i++) {
+      subject.add("metric" + i, ".count", tags, StandardUnit.COUNT, i);
+    }
+    subject.endStep();
+
+    List<JsonObject> events = events();
+    assertEquals(2, events.size());
+    assertEquals(EmfPublisher.MAX_METRICS_PER_LINE, events.get(0).getAsJsonObject("_aws").getAsJsonArray("CloudWatchMetrics").get(0).getAsJsonObject()
+        .getAsJsonArray("Metrics").size());
+    assertEquals("\"Café\"\n", events.get(1).get("Account Name").getAsString());
+    assertEquals(100, events.get(1).get("metric100.count").getAsDouble());
+  }
+
+  private List<JsonObject> events() {
+    return output.toString(StandardCharsets.UTF_8).lines()
+        .map(line -> JsonParser.parseString(line).getAsJsonObject())
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,156 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.arthur.metrics.config.ArthurMetricsProperties;
+import com.arthur.metrics.config.ArthurMetricsProperties.CompressionConfig;
+import com.arthur.metrics.internal.MetricsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.http.SdkHttpRequest;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.http.async.AsyncExecuteRequest;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+
+class GzipRequestInterceptorTest {
+
+  private static final String RESPONSE = "<PutMetricDataResponse xmlns=\"http://monitoring.amazonaws.com/doc/2010-08-01/\">"
+      + "<ResponseMetadata><RequestId>1</RequestId></ResponseMetadata></PutMetricDataResponse>";
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final List<SdkHttpRequest> httpRequests = new CopyOnWriteArrayList<>();
+  private final List<byte[]> bodies = new CopyOnWriteArrayList<>();
+
+  @Test
+  void putMetricData_largeRequest_sendCompressedBody() throws IOException {
+    GzipRequestInterceptor subject = new GzipRequestInterceptor(new CompressionConfig());
+    subject.bindTo(new MetricsServiceImpl(meterRegistry, "app", new ArthurMetricsProperties()));
+
+    try (CloudWatchAsyncClient client = client(subject)) {
+      client.putMetricData(request(200)).join();
+    }
+
+    SdkHttpRequest httpRequest = httpRequests.get(0);
+    assertEquals("gzip", httpRequest.firstMatchingHeader("Content-Encoding").orElse(null));
+    assertEquals(String.valueOf(bodies.get(0).length), httpRequest.firstMatchingHeader("Content-Length").orElse(null));
+    String body = new String(new GZIPInputStream(new ByteArrayInputStream(bodies.get(0))).readAllBytes(), StandardCharsets.UTF_8);
+    assertTrue(body.startsWith("Action=PutMetricData"), body);
+    assertTrue(body.contains("MetricData.member.200.MetricName=metric199.count"));
+    assertEquals(body.length(), count(GzipRequestInterceptor.PAYLOAD_BYTES_METRIC_NAME));
+    assertEquals(bodies.get(0).length, count(GzipRequestInterceptor.SENT_BYTES_METRIC_NAME));
+    double compressionRatio = (double) body.length() / bodies.get(0).length;
+    assertTrue(compressionRatio > 5, "compression ratio " + compressionRatio);
+  }
+
+  @Test
+  void putMetricData_smallRequest_sendUncompressedBody() {
+    GzipRequestInterceptor subject = new GzipRequestInterceptor(new CompressionConfig());
+    subject.bindTo(new MetricsServiceImpl(meterRegistry, "app", new ArthurMetricsProperties()));
+
+    try (CloudWatchAsyncClient client = client(subject)) {
+      client.putMetricData(request(1)).join();
+    }
+
+    assertFalse(httpRequests.get(0).firstMatchingHeader("Content-Encoding").isPresent());
+    assertTrue(new String(bodies.get(0), StandardCharsets.UTF_8).startsWith("Action=PutMetricData"));
+    assertEquals(bodies.get(0).length, count(GzipRequestInterceptor.PAYLOAD_BYTES_METRIC_NAME));
+    assertEquals(bodies.get(0).length, count(GzipRequestInterceptor.SENT_BYTES_METRIC_NAME));
+  }
+
+  private double count(String metricName) {
+    return meterRegistry.get(metricName).counter().count();
+  }
+
+  private static PutMetricDataRequest request(int datums) {
+    return PutMetricDataRequest.builder()
+        .namespace("test")
+        .metricData(IntStream.range(0, datums)
+            .mapToObj(i -> MetricDatum.builder()
+                .metricName("metric" + i + ".count")
+                .dimensions(Dimension.builder().name("Application Name").value("app").build(),
+                    Dimension.builder().name("Account Name").value("account").build())
+                .value(1d)
+                .build())
+            .collect(Collectors.toList()))
+        .build();
+  }
+
+  private CloudWatchAsyncClient client(GzipRequestInterceptor interceptor) {
+    return CloudWatchAsyncClient.builder()
+        .region(Region.US_EAST_1)
+        .endpointOverride(URI.create("http://localhost"))
+        .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+        .overrideConfiguration(configuration -> configuration.addExecutionInterceptor(interceptor))
+        .httpClient(new RecordingHttpClient())
+        .build();
+  }
+
+  /**
+   * Records the requests and answers each with an empty <code>PutMetricData</code> response.
+   */
+  private class RecordingHttpClient implements SdkAsyncHttpClient {
+
+    @Override
+    public CompletableFuture<Void> execute(AsyncExecuteRequest request) {
+      CompletableFuture<Void> response = new CompletableFuture<>();
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      request.requestContentPublisher().subscribe(new Subscriber<>() {
+        @Override
+        public void onSubscribe(Subscription subscription) {
+          subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ByteBuffer byteBuffer) {
+          byte[] bytes = new byte[byteBuffer.remaining()];
+          byteBuffer.get(bytes);
+          body.writeBytes(bytes);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          response.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+          httpRequests.add(request.request());
+          bodies.add(body.toByteArray());
+          request.responseHandler().onHeaders(SdkHttpResponse.builder().statusCode(200).build());
+          request.responseHandler().onStream(AsyncRequestBody.fromString(RESPONSE));
+          response.complete(null);
+        }
+      });
+      return response;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
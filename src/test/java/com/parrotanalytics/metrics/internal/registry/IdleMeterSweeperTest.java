@@ -0,0 +1,119 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.arthur.metrics.config.ArthurMetricsProperties;
+import com.arthur.metrics.config.ArthurMetricsProperties.PublisherConfig;
+import com.arthur.metrics.config.ArthurMetricsProperties.SketchConfig;
+import com.arthur.metrics.internal.MetricsServiceImpl;
+import com.arthur.metrics.meters.Counter;
+import io.micrometer.cloudwatch2.CloudWatchConfig;
+import io.micrometer.core.instrument.MockClock;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IdleMeterSweeperTest {
+
+  private static final Duration STEP = Duration.ofMinutes(1);
+
+  private MockClock clock;
+  private ArthurCloudWatchMeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setUp() {
+    clock = new MockClock();
+    Map<String, String> configuration = Map.of("cloudwatch.namespace", "test", "cloudwatch.step", STEP.toString());
+    CloudWatchConfig cloudWatchConfig = configuration::get;
+    meterRegistry = new ArthurCloudWatchMeterRegistry(cloudWatchConfig, clock, new EmfPublisher("test", OutputStream.nullOutputStream()),
+        new SketchConfig(), new PublisherConfig());
+    meterRegistry.expireIdleMeters(new IdleMeterSweeper(meterRegistry, 2, Set.of(MetricsServiceImpl.TAG_APPLICATION_NAME)));
+  }
+
+  @AfterEach
+  void tearDown() {
+    meterRegistry.close();
+  }
+
+  @Test
+  void publish_meterIdleForMaxIdleSteps_removeMeterAndCountEviction() {
+    meterRegistry.counter("active", MetricsServiceImpl.TAG_APPLICATION_NAME, "app").increment();
+    meterRegistry.counter("idle", MetricsServiceImpl.TAG_APPLICATION_NAME, "app").increment();
+    meterRegistry.gauge("gauge", 1);
+
+    for (int step = 0; step < 3; step++) {
+      clock.add(STEP);
+      meterRegistry.publish();
+      meterRegistry.counter("active", MetricsServiceImpl.TAG_APPLICATION_NAME, "app").increment();
+    }
+
+    assertNotNull(meterRegistry.find("active").counter());
+    assertNull(meterRegistry.find("idle").counter());
+    assertNotNull(meterRegistry.find("gauge").gauge());
+    clock.add(STEP);
+    assertEquals(1, meterRegistry.get(IdleMeterSweeper.EVICTED_METRIC_NAME)
+        .tags(MetricsServiceImpl.TAG_APPLICATION_NAME, "app", CardinalityLimiter.TAG_METRIC_NAME, "idle").counter().count());
+  }
+
+  @Test
+  void publish_meterRecordingInCurrentStepAfterIdleSteps_keepMeter() {
+    meterRegistry.timer("late", MetricsServiceImpl.TAG_APPLICATION_NAME, "app").record(Duration.ofMillis(1));
+    for (int step = 0; step < 2; step++) {
+      clock.add(STEP);
+      meterRegistry.publish();
+    }
+
+    clock.add(STEP);
+    meterRegistry.timer("late", MetricsServiceImpl.TAG_APPLICATION_NAME, "app").record(Duration.ofMillis(1));
+    meterRegistry.publish();
+
+    // a recording ahead of the first poll of a step is reported with the previous step by Micrometer
+    assertEquals(1, meterRegistry.get("late").timer().count());
+  }
+
+  @Test
+  void publish_meterWithLongerStepThanMaxIdleSteps_keepMeterUntilIdleForItsOwnSteps() {
+    meterRegistry.publishWithStep("tiered", STEP.multipliedBy(5));
+    meterRegistry.counter("tiered", MetricsServiceImpl.TAG_APPLICATION_NAME, "app").increment();
+
+    for (int step = 0; step < 5; step++) {
+      clock.add(STEP);
+      meterRegistry.publish();
+    }
+
+    // not yet idle for 2 of its steps, although it was for 5 steps of the registry
+    assertEquals(1, meterRegistry.get("tiered").counter().count());
+    for (int step = 0; step < 5; step++) {
+      clock.add(STEP);
+      meterRegistry.publish();
+    }
+    assertNotNull(meterRegistry.find("tiered").counter());
+    for (int step = 0; step < 5; step++) {
+      clock.add(STEP);
+      meterRegistry.publish();
+    }
+    assertNull(meterRegistry.find("tiered").counter());
+  }
+
+  @Test
+  void publish_handleOfRemovedMeter_registerMeterOnNextIncrement() {
+    Counter counter = new MetricsServiceImpl(meterRegistry, "app", new ArthurMetricsProperties()).createOrGetCounter("handle");
+    counter.increment();
+    for (int step = 0; step < 3; step++) {
+      clock.add(STEP);
+      meterRegistry.publish();
+    }
+    assertNull(meterRegistry.find("handle").counter());
+
+    counter.increment();
+    clock.add(STEP);
+
+    assertEquals(1, meterRegistry.get("handle").counter().count());
+  }
+}
@@ -0,0 +1,63 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MetricSpoolTest {
+
+  // room for 3 batches of 10 bytes
+  private static final int MAX_SIZE = MetricSpool.HEADER_SIZE + 3 * (4 + 10) + 5;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void append_spoolFull_evictOldestAndWrapAround() throws IOException {
+    try (MetricSpool subject = new MetricSpool(directory.resolve("metrics.spool"), MAX_SIZE)) {
+      for (int i = 0; i < 5; i++) {
+        subject.append(batch(i));
+      }
+
+      assertEquals(3, subject.size());
+      assertEquals("batch-0002", poll(subject));
+      assertEquals("batch-0003", poll(subject));
+      subject.append(batch(5));
+      assertEquals("batch-0004", poll(subject));
+      assertEquals("batch-0005", poll(subject));
+      assertNull(subject.peek());
+      assertFalse(subject.append(new byte[MAX_SIZE]));
+    }
+  }
+
+  @Test
+  void open_existingSpool_keepBatches() throws IOException {
+    Path file = directory.resolve("metrics.spool");
+    try (MetricSpool subject = new MetricSpool(file, MAX_SIZE)) {
+      subject.append(batch(1));
+      subject.append(batch(2));
+      poll(subject);
+    }
+
+    try (MetricSpool subject = new MetricSpool(file, MAX_SIZE)) {
+      assertEquals(1, subject.size());
+      assertEquals("batch-0002", poll(subject));
+    }
+  }
+
+  private static byte[] batch(int index) {
+    return String.format("batch-%04d", index).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String poll(MetricSpool spool) {
+    MetricSpool.Batch batch = spool.peek();
+    spool.remove(batch);
+    return new String(batch.getBytes(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,51 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.arthur.metrics.config.ArthurMetricsProperties;
+import com.arthur.metrics.internal.MetricsServiceImpl;
+import com.arthur.metrics.service.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PercentileMeterFilterTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private ArthurMetricsProperties parrotMetricsProperties;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    parrotMetricsProperties = new ArthurMetricsProperties();
+  }
+
+  @Test
+  void publishPercentiles_givenPercentiles_publishPercentileGauges() {
+    Metrics subject = new MetricsServiceImpl(meterRegistry, "app", parrotMetricsProperties);
+    subject.publishPercentiles("latency", 0.5, 0.99);
+
+    for (int i = 1; i <= 100; i++) {
+      subject.createOrGetTimer("latency").record(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+
+    assertEquals(2, meterRegistry.get("latency.percentile").gauges().size());
+    // in seconds, the base time unit of the simple registry
+    assertEquals(0.05, meterRegistry.get("latency.percentile").tag("phi", "0.5").gauge().value(), 0.01);
+    assertEquals(0.1, meterRegistry.get("latency.percentile").tag("phi", "0.99").gauge().value(), 0.01);
+  }
+
+  @Test
+  void metricNames_givenConfiguredMetric_publishDefaultPercentilesForThatMetricOnly() {
+    parrotMetricsProperties.getPercentiles().getMetricNames().add("restapi.duration");
+    Metrics subject = new MetricsServiceImpl(meterRegistry, "app", parrotMetricsProperties);
+
+    subject.createOrGetTimer("restapi.duration").record(1_000_000);
+    subject.createOrGetTimer("other.duration").record(1_000_000);
+
+    assertEquals(3, meterRegistry.get("restapi.duration.percentile").gauges().size());
+    assertNull(meterRegistry.find("other.duration.percentile").gauge());
+  }
+}
@@ -0,0 +1,33 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RotatingFileOutputStreamTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void write_exceedMaxFileSize_rotateBetweenWrites() throws IOException {
+    Path file = directory.resolve("metrics.log");
+
+    try (RotatingFileOutputStream subject = new RotatingFileOutputStream(file, 10, 2)) {
+      for (String line : new String[] {"line-1\n", "line-2\n", "line-3\n", "line-4\n"}) {
+        subject.write(line.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    assertEquals("line-4\n", Files.readString(file));
+    assertEquals("line-3\n", Files.readString(directory.resolve("metrics.log.1")));
+    assertEquals("line-2\n", Files.readString(directory.resolve("metrics.log.2")));
+    assertFalse(Files.exists(directory.resolve("metrics.log.3")));
+  }
+}
@@ -0,0 +1,118 @@
+package com.arthur.metrics.internal.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.arthur.metrics.config.ArthurMetricsProperties.TargetConfig;
+import io.micrometer.core.instrument.Tag;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+class TargetPublisherTest {
+
+  private static final List<Tag> USER_A = List.of(Tag.of("Application Name", "app"), Tag.of("User", "a"));
+  private static final List<Tag> USER_B = List.of(Tag.of("Application Name", "app"), Tag.of("User", "b"));
+
+  private final RecordingPublisher delegate = new RecordingPublisher();
+
+  @Test
+  void endStep_tagDenied_aggregateSeriesWithoutTag() {
+    TargetConfig targetConfig = new TargetConfig();
+    targetConfig.setTagDenylist(List.of("User"));
+    targetConfig.setMetricNameDenylist(List.of("debug\\..*"));
+    TargetPublisher subject = new TargetPublisher(delegate, targetConfig, 1);
+
+    subject.beginStep(1000);
+    addTimer(subject, USER_A, 30, 1, 30);
+    addTimer(subject, USER_B, 10, 3, 5);
+    subject.add("debug.requests", ".count", USER_A, StandardUnit.COUNT, 1);
+    subject.endStep();
+
+    List<Tag> tags = List.of(Tag.of("Application Name", "app"));
+    assertEquals(List.of("begin 1000", "latency.sum " + tags + " 40.0", "latency.count " + tags + " 4.0", "latency.avg " + tags + " 10.0",
+        "latency.max " + tags + " 30.0", "end"), delegate.calls);
+  }
+
+  @Test
+  void endStep_tagDeniedForPercentiles_dropPercentilesInsteadOfAddingThemUp() {
+    TargetConfig targetConfig = new TargetConfig();
+    targetConfig.setTagDenylist(List.of("User"));
+    TargetPublisher subject = new TargetPublisher(delegate, targetConfig, 1);
+    List<Tag> p99UserA = List.of(Tag.of("Application Name", "app"), Tag.of("User", "a"), Tag.of(TargetPublisher.PERCENTILE_TAG_KEY, "0.99"));
+    List<Tag> p99UserB = List.of(Tag.of("Application Name", "app"), Tag.of("User", "b"), Tag.of(TargetPublisher.PERCENTILE_TAG_KEY, "0.99"));
+    List<Tag> p99 = List.of(Tag.of("Application Name", "app"), Tag.of(TargetPublisher.PERCENTILE_TAG_KEY, "0.99"));
+
+    subject.beginStep(1000);
+    subject.add("latency.percentile", ".value", p99UserA, StandardUnit.MILLISECONDS, 30);
+    subject.add("latency.percentile", ".value", p99UserB, StandardUnit.MILLISECONDS, 50);
+    subject.add("jobs.percentile", ".value", p99, StandardUnit.MILLISECONDS, 20);
+    subject.add("queue.size", ".value", USER_A, StandardUnit.COUNT, 7);
+    subject.add("queue.size", ".value", USER_B, StandardUnit.COUNT, 4);
+    subject.endStep();
+
+    List<Tag> tags = List.of(Tag.of("Application Name", "app"));
+    assertEquals(List.of("begin 1000", "jobs.percentile.value " + p99 + " 20.0", "queue.size.value " + tags + " 11.0", "end"), delegate.calls);
+  }
+
+  @Test
+  void endStep_stepMultiple_publishOncePerTargetStep() {
+    TargetPublisher subject = new TargetPublisher(delegate, new TargetConfig(), 2);
+
+    subject.beginStep(1000);
+    subject.add("requests", ".count", USER_A, StandardUnit.COUNT, 2);
+    subject.add("queue.size", ".value", USER_A, StandardUnit.COUNT, 7);
+    subject.endStep();
+    assertTrue(delegate.calls.isEmpty());
+    subject.beginStep(2000);
+    subject.add("requests", ".count", USER_A, StandardUnit.COUNT, 3);
+    subject.add("queue.size", ".value", USER_A, StandardUnit.COUNT, 4);
+    subject.endStep();
+
+    assertEquals(List.of("begin 2000", "requests.count " + USER_A + " 5.0", "queue.size.value " + USER_A + " 4.0", "end"), delegate.calls);
+  }
+
+  private static void addTimer(TargetPublisher subject, List<Tag> tags, double sum, double count, double max) {
+    subject.add("latency", ".sum", tags, StandardUnit.MILLISECONDS, sum);
+    subject.add("latency", ".count", tags, StandardUnit.COUNT, count);
+    subject.add("latency", ".avg", tags, StandardUnit.MILLISECONDS, sum / count);
+    subject.add("latency", ".max", tags, StandardUnit.MILLISECONDS, max);
+  }
+
+  private static class RecordingPublisher implements MetricDataPublisher {
+
+    private final List<String> calls = new ArrayList<>();
+
+    @Override
+    public void beginStep(long timestamp) {
+      calls.add("begin " + timestamp);
+    }
+
+    @Override
+    public void add(String metricName, String suffix, List<Tag> tags, StandardUnit unit, double value) {
+      calls.add(metricName + suffix + " " + tags + " " + value);
+    }
+
+    @Override
+    public void addStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, double sampleCount, double sum, double minimum, double maximum) {
+      calls.add(metricName + " " + tags + " " + sampleCount + "/" + sum + "/" + minimum + "/" + maximum);
+    }
+
+    @Override
+    public void addHighResolutionStatisticSet(String metricName, List<Tag> tags, StandardUnit unit, long timestamp, double sampleCount, double sum,
+        double minimum, double maximum) {
+      calls.add(metricName + " " + tags + " @" + timestamp + " " + sampleCount + "/" + sum + "/" + minimum + "/" + maximum);
+    }
+
+    @Override
+    public void addDistribution(String metricName, List<Tag> tags, StandardUnit unit, double[] values, double[] counts, int length) {
+      calls.add(metricName + " " + tags + " " + length);
+    }
+
+    @Override
+    public void endStep() {
+      calls.add("end");
+    }
+  }
+}
@@ -5,6 +5,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -33,6 +34,12 @@ public class TestController {
     return RESULT_REQUEST;
   }
 
+  @GetMapping("testRequest/{titleId}")
+  public String testRequestWithPathVariable(@PathVariable String titleId) throws InterruptedException {
+    Thread.sleep(DEFAULT_OP_DURATION_IN_MILLIS);
+    return RESULT_REQUEST;
+  }
+
   @PostMapping("testPostRequest")
   public ResponseEntity testPostRequest204() throws InterruptedException {
     Thread.sleep(DEFAULT_OP_DURATION_IN_MILLIS);